@@ -1124,6 +1124,8 @@ public class GenOpt extends Thread
 		if (nErr < inpForExc.getNumberOfErrors()) return;
 		instantiateSimulationStarter(optCfgStrTok, inpForExc, fn);
 		if (nErr < inpForExc.getNumberOfErrors()) return;
+		instantiateResources(optCfgStrTok, inpForExc, fn);
+		if (nErr < inpForExc.getNumberOfErrors()) return;
 		// checks whether the section ObjectiveFunctionLocation is present
 		String secKey = "ObjectiveFunctionLocation";
 
@@ -1447,15 +1449,62 @@ public class GenOpt extends Thread
 				      String fn)
     {
 	int nErr = inpForExc.getNumberOfErrors();
-	String comEnt = new String();
-	boolean proFilExt = false;
+	int numOfEnt = 26;
+	String[] key = new String[numOfEnt];
+	String[] val = new String[numOfEnt];
+
+	key[0] = "Command";
+	key[1] = "WriteInputFileExtension";
+	key[2] = "StandardOutput";
+	key[3] = "Environment";
+	key[4] = "Timeout";
+	key[5] = "TimeoutMedianFactor";
+	key[6] = "RetryAfterTimeout";
+	key[7] = "SpeculativeMedianFactor";
+	key[8] = "SpeculativeBatchFraction";
+	key[9] = "ScratchDirectory";
+	key[10] = "StaticFiles";
+	key[11] = "SimulationClass";
+	key[12] = "SimulationClassPath";
+	key[13] = "PersistentWorker";
+	key[14] = "WorkerMaximumEvaluations";
+	key[15] = "AgentPort";
+	key[16] = "SpoolDirectory";
+	key[17] = "SubmitCommand";
+	key[18] = "JobArraySize";
+	key[19] = "CpuAffinity";
+	key[20] = "MemoryMargin";
+	key[21] = "LiveErrorCheck";
+	key[22] = "ProgressDelimiter";
+	key[23] = "Resources";
+	key[24] = "AgentAddress";
+	key[25] = "AgentToken";
+
+	for (int i = 0; i < numOfEnt; i++)
+	    val[i] = new String("");
+
 	try
 	    {
 		Token.getSectionStart(optCfgStrTok, "SimulationStart", inpForExc, fn);
-		comEnt = Token.getStringValue(optCfgStrTok, '=', ';',
-					      "Command", inpForExc, fn);
-		proFilExt = Token.getBooleanValue(optCfgStrTok, '=', ';',
-						  "WriteInputFileExtension", inpForExc, fn);
+		Token.getStringValue(optCfgStrTok, '=', ';',
+				     key, val, inpForExc, fn, Token.PART);
+		// all other entries are optional. A simulation class replaces the command.
+		if (val[11].length() == 0){
+		    Token.checkVariableSetting(optCfgStrTok, inpForExc, key[0], val[0], fn);
+		    Token.checkVariableSetting(optCfgStrTok, inpForExc, key[1], val[1], fn);
+		}
+		else if (val[1].length() == 0) val[1] = "false";
+		if (val[4].length() == 0) val[4] = "0";
+		if (val[5].length() == 0) val[5] = "0";
+		if (val[6].length() == 0) val[6] = "false";
+		if (val[7].length() == 0) val[7] = "0";
+		if (val[8].length() == 0) val[8] = "0.8";
+		if (val[13].length() == 0) val[13] = "false";
+		if (val[14].length() == 0) val[14] = "0";
+		if (val[15].length() == 0) val[15] = "0";
+		if (val[18].length() == 0) val[18] = "1";
+		if (val[20].length() == 0) val[20] = "-1";
+		if (val[21].length() == 0) val[21] = "false";
 		Token.moveToSectionEnd(optCfgStrTok, inpForExc, fn);
 	    }
 	catch(IOException e)
@@ -1466,13 +1515,150 @@ public class GenOpt extends Thread
 	if (nErr < inpForExc.getNumberOfErrors())
 	    return;
 
+	final boolean proFilExt = parseBoolean(optCfgStrTok, key[1], val[1],
+					       inpForExc, fn);
+	// environment variables, separated by white space, such as "OMP_NUM_THREADS=1 MKL_NUM_THREADS=1"
+	Map<String, String> env = new LinkedHashMap<String, String>();
+	StringTokenizer envTok = new StringTokenizer(val[3]);
+	while (envTok.hasMoreTokens()){
+	    final String tok = envTok.nextToken();
+	    final int i = tok.indexOf('=');
+	    if ( i < 1 ){
+		String em = "'" + key[3] + "' must be of the form 'NAME1=value1 NAME2=value2', received '" +
+		    val[3] + "'.";
+		Token.setError(optCfgStrTok, inpForExc, em, fn);
+		break;
+	    }
+	    env.put(tok.substring(0, i), tok.substring(i+1));
+	}
+	final double timOut = parseDouble(optCfgStrTok, key[4], val[4],
+					  0, Double.MAX_VALUE, inpForExc, fn);
+	final double timOutMedFac = parseDouble(optCfgStrTok, key[5], val[5],
+						0, Double.MAX_VALUE, inpForExc, fn);
+	if ( timOutMedFac > 0 && timOutMedFac <= 1 ){
+	    String em = "'" + key[5] + "' must be 0 or bigger than 1, received '" + val[5] + "'.";
+	    Token.setError(optCfgStrTok, inpForExc, em, fn);
+	}
+	final boolean retTimOut = parseBoolean(optCfgStrTok, key[6], val[6],
+					       inpForExc, fn);
+	final double speMedFac = parseDouble(optCfgStrTok, key[7], val[7],
+					     0, Double.MAX_VALUE, inpForExc, fn);
+	if ( speMedFac > 0 && speMedFac <= 1 ){
+	    String em = "'" + key[7] + "' must be 0 or bigger than 1, received '" + val[7] + "'.";
+	    Token.setError(optCfgStrTok, inpForExc, em, fn);
+	}
+	final double speBatFra = parseDouble(optCfgStrTok, key[8], val[8],
+					     0, 1, inpForExc, fn);
+	final boolean perWor = parseBoolean(optCfgStrTok, key[13], val[13],
+					    inpForExc, fn);
+	final int worMaxEva = parseInteger(optCfgStrTok, key[14], val[14],
+					   0, Integer.MAX_VALUE, inpForExc, fn);
+	if ( perWor && val[11].length() > 0 ){
+	    String em = "'" + key[11] + "' and '" + key[13] + "' cannot be used together.";
+	    Token.setError(optCfgStrTok, inpForExc, em, fn);
+	}
+	final int agPor = parseInteger(optCfgStrTok, key[15], val[15],
+				       0, 65535, inpForExc, fn);
+	if ( agPor > 0 && ( perWor || val[11].length() > 0 ) ){
+	    String em = "'" + key[15] + "' cannot be used together with '" + key[11] + "' or '" + key[13] + "'.";
+	    Token.setError(optCfgStrTok, inpForExc, em, fn);
+	}
+	// the token can also be set in the environment, so that it is not in the configuration file
+	if ( val[25].length() == 0 && System.getenv(SimulationAgent.TOKEN_VARIABLE) != null )
+	    val[25] = System.getenv(SimulationAgent.TOKEN_VARIABLE);
+	if ( agPor > 0 && val[25].length() == 0 ){
+	    String em = "'" + key[25] + "' or the environment variable " + SimulationAgent.TOKEN_VARIABLE +
+		" must be set if '" + key[15] + "' is used.";
+	    Token.setError(optCfgStrTok, inpForExc, em, fn);
+	}
+	final int jobArrSiz = parseInteger(optCfgStrTok, key[18], val[18],
+					   1, Integer.MAX_VALUE, inpForExc, fn);
+	if ( val[16].length() > 0 && ( agPor > 0 || perWor || val[11].length() > 0 || val[9].length() > 0 ) ){
+	    String em = "'" + key[16] + "' cannot be used together with '" + key[9] + "', '" + key[11] + 
+		"', '" + key[13] + "' or '" + key[15] + "'.";
+	    Token.setError(optCfgStrTok, inpForExc, em, fn);
+	}
+	final double memMar = parseDouble(optCfgStrTok, key[20], val[20],
+					  -1, Double.MAX_VALUE, inpForExc, fn);
+	final boolean livErrChe = parseBoolean(optCfgStrTok, key[21], val[21],
+					       inpForExc, fn);
+	// static files, separated by white space
+	StringTokenizer staTok = new StringTokenizer(val[10]);
+	String[] staFil = new String[staTok.countTokens()];
+	for (int i = 0; i < staFil.length; i++)
+	    staFil[i] = staTok.nextToken();
+	if (nErr < inpForExc.getNumberOfErrors())
+	    return;
+
 	// Constructor SimulationStarter
 	try{ 
-	    SimSta = new SimulationStarter(comEnt, proFilExt, USERDIR, OptIni); 
+	    SimSta = new SimulationStarter(val[0], proFilExt, USERDIR, OptIni); 
+	    SimSta.setStandardOutput(val[2]);
+	    SimSta.setEnvironment(env);
+	    SimSta.setTimeout(timOut, timOutMedFac, retTimOut);
+	    SimSta.setSpeculativeExecution(speMedFac, speBatFra);
+	    SimSta.setScratchDirectory(val[9]);
+	    SimSta.setStaticFiles(staFil);
+	    if (val[11].length() > 0)
+		SimSta.setInProcessSimulation(val[11], val[12]);
+	    SimSta.setPersistentWorker(perWor, worMaxEva);
+	    SimSta.setAgentPort(agPor, val[24], val[25]);
+	    SimSta.setSpoolDirectory(val[16], val[17], jobArrSiz);
+	    SimSta.setCpuAffinity(val[19]);
+	    SimSta.setMemoryMargin(memMar);
+	    if (livErrChe)
+		SimSta.setLiveErrorCheck(ErrChe);
+	    SimSta.setProgressDelimiter(val[22]);
+	    SimSta.setResources(val[23]);
 	}
 	catch(IOException e){
 	    inpForExc.setThrowable(e);
 	}
+	catch(OptimizerException e){
+	    Token.setError(optCfgStrTok, inpForExc, e.getMessage(), fn);
+	}
+    }
+
+    ///////////////////////////////////////////////////////////////////////
+    /** makes an instance of ResourcePool from the optional sections <CODE>Resource</CODE>,
+     *  and assigns it to the SimulationStarter
+     * @param optCfgStrTok StreamTokenizer of the optimization configuration file
+     * @param inpForExc reference to InputFormatException. InputFormatException will be
+     *        written in this Object
+     * @param fn file name (including path) of optimization configuration file
+     */
+    private void instantiateResources(StreamTokenizer optCfgStrTok, InputFormatException inpForExc,
+				      String fn)
+    {
+	int nErr = inpForExc.getNumberOfErrors();
+	String[] key = {"Name", "Count"};
+	ResourcePool resPoo = new ResourcePool();
+	try
+	    {
+		while (Token.isNextToken(optCfgStrTok, "Resource")){
+		    String[] val = {"", ""};
+		    Token.getSectionStart(optCfgStrTok, "Resource", inpForExc, fn);
+		    Token.getStringValue(optCfgStrTok, '=', ';',
+					 key, val, inpForExc, fn, Token.ALL);
+		    Token.moveToSectionEnd(optCfgStrTok, inpForExc, fn);
+		    if (nErr < inpForExc.getNumberOfErrors())
+			return;
+		    final int cou = parseInteger(optCfgStrTok, key[1], val[1],
+						 1, Integer.MAX_VALUE, inpForExc, fn);
+		    if (nErr < inpForExc.getNumberOfErrors())
+			return;
+		    resPoo.add(val[0], cou);
+		}
+		SimSta.setResourcePool(resPoo);
+	    }
+	catch(IOException e)
+	    {
+		inpForExc.setThrowable(e);
+	    }
+	catch(OptimizerException e)
+	    {
+		Token.setError(optCfgStrTok, inpForExc, e.getMessage(), fn);
+	    }
     }
 
     ///////////////////////////////////////////////////////////////////////
@@ -1843,7 +2029,7 @@ public class GenOpt extends Thread
 							       InputFormatException inpForExc, String fn, int maxEqualResults)
     {
 	int nErr = inpForExc.getNumberOfErrors();
-	int numOfEnt = 4;
+	int numOfEnt = 5;
 	String[] key = new String[numOfEnt];
 	String[] val    = new String[numOfEnt];
 
@@ -1851,6 +2037,7 @@ public class GenOpt extends Thread
 	key[1] = "MaxEqualResults";
 	key[2] = "WriteStepNumber";
 	key[3] = "UnitsOfExecution";
+	key[4] = "ArchiveSavedFiles";
 
 	for (int i = 0; i < numOfEnt; i++)
 	    val[i] = new String("");
@@ -1873,6 +2060,7 @@ public class GenOpt extends Thread
 				     key, val, inpForExc, fn, Token.PART);
 		if (val[1].length() == 0) val[1] = new Integer(maxEqualResults).toString();
 		if (val[3].length() == 0) val[3] = new Integer(0).toString();
+		if (val[4].length() == 0) val[4] = "false";
 		Token.checkVariableSetting(optComStrTok, inpForExc, key, val, fn);
 		Token.moveToSectionEnd(optComStrTok, inpForExc, fn);
 	    }
@@ -1901,13 +2089,18 @@ public class GenOpt extends Thread
 	boolean wriSteNum = parseBoolean(optComStrTok, key[2], val[2],
 					 inpForExc, fn);
 
-	int uniOfExe = parseInteger(optComStrTok, key[3], val[3],
-				    0, Integer.MAX_VALUE, inpForExc, fn);
+	// 'auto' lets the number of parallel simulations be tuned during the run
+	final boolean autUniOfExe = val[3].equalsIgnoreCase("auto");
+	int uniOfExe = autUniOfExe ? ConcurrencyTuner.getMaximumNumberOfSlots() :
+	    parseInteger(optComStrTok, key[3], val[3],
+			 0, Integer.MAX_VALUE, inpForExc, fn);
+	boolean arcSavFil = parseBoolean(optComStrTok, key[4], val[4],
+					 inpForExc, fn);
 
 	//check for error
 	if (nErr < inpForExc.getNumberOfErrors()) return;
 
-	OptSet = new OptimizationSettings(maxIte, wriSteNum, uniOfExe);
+	OptSet = new OptimizationSettings(maxIte, wriSteNum, uniOfExe, autUniOfExe, arcSavFil);
 	resChe = new ResultChecker(maxEquRes);
     }
 
@@ -2646,6 +2839,32 @@ public class GenOpt extends Thread
 		    t.getMessage();
 		exiFla = 1;
 	    }
+	if (SimExe != null)
+	    SimExe.shutdown();
+	// report the throughput of each process slot, for example to check the processor assignment
+	if (exiFla == 0 && SimSta != null){
+	    final String sloSta = SimSta.getSlotStatistics();
+	    if (sloSta.length() > 0)
+		println(sloSta);
+	    final String memSta = SimSta.getMemoryStatistics();
+	    if (memSta.length() > 0)
+		println(memSta);
+	    final String resSta = SimSta.getResourceStatistics();
+	    if (resSta.length() > 0)
+		println(resSta);
+	    final String batSta = Optimizer.getBatchStatistics();
+	    if (batSta.length() > 0)
+		println(batSta);
+	}
+	if (SavArc != null){
+	    try{
+		SavArc.close();
+	    }
+	    catch(IOException e){
+		errMes += LS + "Cannot close the archive of the saved simulation files: " + e.getMessage();
+		exiFla = 1;
+	    }
+	}
 	if (exiFla != 0)
 	    flag = 0; // we got an Exception
 
@@ -2845,6 +3064,10 @@ public class GenOpt extends Thread
     public IOSettings ioSet;
     /** simulation starter */
     public SimulationStarter SimSta;
+    /** simulation executor, shared by all function evaluations of a run */
+    public SimulationExecutor SimExe;
+    /** archive for the saved simulation files, or <CODE>null</CODE> */
+    public SaveArchive SavArc;
     /** error checker */
     public ErrorChecker ErrChe;
     /** result manager */
@@ -10,9 +10,14 @@ import genopt.db.ResultManager;
 
 import java.io.*;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /** Abstract Class that represents the structure of an optimization 
   * algorithm class and offers generic methods to run the optimization.<BR>
@@ -91,6 +96,8 @@ abstract public class Optimizer
     protected final static String LS = System.getProperty("line.separator");
     /** System dependent file separator */
     protected final static String FS = System.getProperty("file.separator");
+    /** Flag, <CODE>true</CODE> if GenOpt runs on Windows */
+    private final static boolean WINDOWS = System.getProperty("os.name").startsWith("Windows");
     /** constant to indicate that it is a main iteration */
     public static final boolean MAINITERATION = true;
     /** constant to indicate that it is a sub iteration */
@@ -148,10 +155,28 @@ abstract public class Optimizer
 	// get the objective function objects
 	objFunObj  = data.OptIni.getFunctionObjects();
 
-	simInpTemFilHan = new FileHandler[nSimInpFil];
-	for (int i = 0; i < nSimInpFil ; i++)
-	    simInpTemFilHan[i] = new FileHandler(data.OptIni.getSimInpTemPat(i),
-						 data.OptIni.getSimInpTemFilNam(i));
+	// Parse the templates once into literal text and placeholders, 
+	// so that each simulation input file is written in one pass.
+	final List<String> plaNam = new ArrayList<String>(dimX + dimInpFun + 1);
+	for (int i = 0; i < dimCon; i++)
+	    plaNam.add(data.conPar[i].getName());
+	for (int i = 0; i < dimDis; i++)
+	    plaNam.add(data.disPar[i].getName());
+	if (wriSteNum)
+	    plaNam.add("stepNumber");
+	for (int i = 0; i < dimInpFun; i++)
+	    plaNam.add(data.inpFun[i].getName());
+	simInpTem = new CompiledTemplate[nSimInpFil];
+	simInpTemFil = new File[nSimInpFil];
+	for (int i = 0; i < nSimInpFil ; i++){
+	    simInpTem[i] = new CompiledTemplate(new FileHandler(data.OptIni.getSimInpTemPat(i),
+								data.OptIni.getSimInpTemFilNam(i)),
+						plaNam);
+	    // a template without placeholders is linked rather than written
+	    if ( simInpTem[i].isConstant() )
+		simInpTemFil[i] = new File(data.OptIni.getSimInpTemPat(i),
+					   data.OptIni.getSimInpTemFilNam(i));
+	}
 	
 	/*	simLogFil = new String[nSimLogFil];
 	simOutFil = new String[nSimOutFil];
@@ -186,21 +211,39 @@ abstract public class Optimizer
 	genopt.io.FileHandler.makeDirectory(data.OptIni.getSimInpSavPat());
 	genopt.io.FileHandler.makeDirectory(data.OptIni.getSimLogSavPat());
 	genopt.io.FileHandler.makeDirectory(data.OptIni.getSimOutSavPat());
+	// archive for the saved files
+	if ( data.OptSet.archiveSavedFiles() ){
+	    _deleteArchives(data.OptIni.getSimInpSavPat());
+	    _deleteArchives(data.OptIni.getSimLogSavPat());
+	    _deleteArchives(data.OptIni.getSimOutSavPat());
+	    data.SavArc = new SaveArchive();
+	}
 
 	// initialize list with evaluated points
 	evaPoi = Collections.synchronizedMap(new TreeMap<Point, Double[]>());
+	bouPoi = Collections.synchronizedMap(new TreeMap<Point, Double>());
+	penEva = Collections.synchronizedMap(new TreeMap<Point, CompletableFuture<Point>>());
+	durMod = new DurationModel();
 
 	// maximum number of threads in the pool
 	maxThrPoo = data.OptSet.getMaxUnitsOfExecution();
-	if ( maxThrPoo == 1 )
+	final boolean autThr = data.OptSet.autoUnitsOfExecution();
+	if ( autThr )
+		println("Assigning between 1 and " + maxThrPoo + " threads for simulations, starting with " +
+			ConcurrencyTuner.getInitialNumberOfSlots(maxThrPoo) + ".");
+	else if ( maxThrPoo == 1 )
 		println("Assigning " + maxThrPoo + " thread for simulations.");
 	else
 		println("Assigning " + maxThrPoo + " threads for simulations.");
 	
-	data.SimSta.setMaximumNumberOfThreads(maxThrPoo);
+	// the executor is shared by all function evaluations of this run
+	if (data.SimExe != null)
+	    throw new OptimizerException("Program error. The simulation executor has already been instantiated.");
+	data.SimExe = new SimulationExecutor(data.SimSta, maxThrPoo, autThr);
+	if ( data.SimSta.getAgentServer() != null )
+	    println("Waiting for simulation agents on port " + data.SimSta.getAgentServer().getPort() + ".");
 	// flag, true 
 	functionValuesParsed = new AtomicBoolean(false);
-	funValParLat = new CountDownLatch(1);
 
 	firstSimulations = true;
     }
@@ -316,8 +359,19 @@ abstract public class Optimizer
 	}
     }
 
+    /** Deletes the archives of the saved files.
+     * @param savePath paths where the files are saved
+     */
+    private static void _deleteArchives(final String[] savePath){
+	for (int iF=0; iF < savePath.length ; iF++)
+	    if (!(savePath[iF].equals("")))
+		SaveArchive.delete(savePath[iF]);
+    }
+
     /** Copies the files from <CODE>path</CODE> to <CODE>savePath</CODE> and
      *  adds the run number in front of the file name.
+     *  If the saved files are archived, then the files are appended to the archive
+     *  in <CODE>savePath</CODE>.
      * @param savePath path where the files have to be copied to.
      *  If it does not exist, it will be created.
      * @param path source path of the files
@@ -342,9 +396,23 @@ abstract public class Optimizer
 		final String fn = path[iF] + FS + name[iF];
 		f = new File(fn);
 		try {
-		    if ( f.exists() ){
-			if (!f.renameTo(new File(savePath[iF] + FS + simNum + name[iF])))
-			    setWarning("Cannot rename file '" + fn + "'.", simNum);
+		    if ( f.exists() && data.SavArc != null ){
+			try{
+			    data.SavArc.add(savePath[iF], simNum, f);
+			}
+			catch(IOException e){
+			    setWarning("Cannot archive file '" + fn + "': " + e.getMessage(), simNum);
+			}
+		    }
+		    else if ( f.exists() ){
+			// this copies the file if the scratch directory is on a different file system
+			try{
+			    Files.move(f.toPath(), new File(savePath[iF] + FS + simNum + name[iF]).toPath(),
+				       StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch(IOException e){
+			    setWarning("Cannot rename file '" + fn + "': " + e.getMessage(), simNum);
+			}
 		    }
 		    else
 			setWarning("File '" + fn + "' does not exist.", simNum);
@@ -440,6 +508,22 @@ abstract public class Optimizer
      */
     protected int getStepNumber() { return stepNumber; }
 
+    /** Sets the bound of the objective function above which a point cannot improve
+     *  the current iterate, such as the function value of the current iterate.<BR>
+     *  If the simulation program writes partial values of the objective function,
+     *  as specified by the keyword <CODE>ProgressDelimiter</CODE>, then a simulation
+     *  is stopped once its partial value exceeds the bound, and the partial value is
+     *  stored as its function value. This is only correct if the objective function
+     *  increases monotonically during the simulation.<BR>
+     *  The bound is only used if there is one objective function, and if it is
+     *  not defined by a function object. The bound applies to the simulations that are 
+     *  started after this call, and should be reset to <CODE>Double.POSITIVE_INFINITY</CODE>
+     *  once the algorithm compares points against a different value.
+     * @param bound the bound, or <CODE>Double.POSITIVE_INFINITY</CODE> if no simulation
+     *        should be stopped
+     */
+    protected void setObjectiveBound(double bound) { objBou = bound; }
+
     /** Checks whether the current section is closed and then moves to
      * the end of the file. If either of the operation fails, an
      * InputFormatException is thrown.<BR>
@@ -807,7 +891,10 @@ abstract public class Optimizer
     /** Evaluates the simulation for the point x<BR>
      * The value <CODE>conMode</CODE> determines in which mode the constraints
      * are treated. The return value contains the same point but with its function value
-     * as determined by the simulation.
+     * as determined by the simulation.<BR>
+     * The simulations are submitted to the simulation executor, and this method
+     * blocks until all of them completed. Use {@link #submit(Point)} to evaluate
+     * points asynchronously.
      *
      * @param x the points to be evaluated
      * @param stopAtError set to false to continue with function evaluations even if there was an error
@@ -836,6 +923,16 @@ abstract public class Optimizer
 		evaluate[iP] = false;
 	}
 
+	// points that are currently evaluated by a call of submit are not simulated again
+	CompletableFuture<?>[] fut = new CompletableFuture<?>[x.length];
+	for (int iP = 0; iP < x.length; iP++){
+	    if ( evaluate[iP] ){
+		fut[iP] = penEva.get(_getKey(x[iP]));
+		if ( fut[iP] != null )
+		    evaluate[iP] = false;
+	    }
+	}
+
 	int numOfSim = 0;
 
 	// Set the simulation number for each point that requires a simulation
@@ -850,30 +947,50 @@ abstract public class Optimizer
 	    }
 	}
 	assert (maxThrPoo > 0) : "maxThrPoo must be bigger than 0";
-	ExecutorService exec = Executors.newFixedThreadPool(maxThrPoo);
-	done = new CountDownLatch(numOfSim);
 
-	SimulationThread[] simThr = new SimulationThread[numOfSim];
-	int k=0;
+	// Start the simulations that are expected to take longest first,
+	// as otherwise a long simulation that is started last delays the whole batch.
+	final double[] preDur = new double[x.length];
+	final Integer[] ord = _getDispatchOrder(x, evaluate, preDur);
+	final long t0 = System.nanoTime();
+
+	// run simulations. The threads share an exception counter so that
+	// the remaining simulations are skipped after an error.
+	final AtomicInteger iExc = new AtomicInteger(0);
+	for(int iP : ord){
+	    if (evaluate[iP])
+		fut[iP] = _submit(x[iP], iExc);
+	}
+
+	// wait until all simulations completed
 	for(int iP = 0; iP < x.length; iP++){
-	    if (evaluate[iP]){ // this points will need to be simulated
-		simThr[k] = new SimulationThread(this, x[iP]);
-		k++;
+	    if ( fut[iP] != null ){
+		try{ fut[iP].get(); }
+		catch(ExecutionException e){} // exception is thrown below
 	    }
 	}
-
-	// run simulations
-	for(int iT = 0; iT < numOfSim; iT++)
-	    exec.execute( simThr[iT] );
-
-	// wait until all threads completed
-	done.await();
+	if ( numOfSim > 1 && !Double.isNaN(preDur[ord[0]]) ){
+	    double[] d = new double[numOfSim];
+	    int i = 0;
+	    for(int iP : ord){
+		if (evaluate[iP])
+		    d[i++] = preDur[iP];
+	    }
+	    durMod.addBatch(DurationModel.getMakespan(d, data.SimExe.getNumberOfThreads()),
+			    (System.nanoTime() - t0) * 1E-9);
+	}
 	// Set flag firstSimulations to false
 	firstSimulations = false;
 	// throw the exceptions, if any
-	for(int iT = 0; iT < numOfSim; iT++){
+	for(int iP = 0; iP < x.length; iP++){
+	    if ( fut[iP] == null )
+		continue;
 	    try{
-		simThr[iT].throwStoredException();
+		final Point p = (Point)_getResult(fut[iP]);
+		if ( p != x[iP] ){ // point was evaluated by a call of submit
+		    x[iP].setF( p.getF() );
+		    x[iP].setSimulationNumber( p.getSimulationNumber() );
+		}
 	    }
 	    catch(Exception e){
 		if(stopAtError || mustStopOptimization())
@@ -881,31 +998,32 @@ abstract public class Optimizer
 		else{
 		    String em = "Exception in evaluating x = ( ";
 		    for (int i=0; i < dimCon-1; i++)
-		        em += x[iT].getX(i) + ", ";
+		        em += x[iP].getX(i) + ", ";
 		    if (dimDis == 0){ // no discrete variables, close bracket
-			em += x[iT].getX(dimCon-1) + ")." + LS;
+			em += x[iP].getX(dimCon-1) + ")." + LS;
                     }
 		    else{ // have discrete vars
                         if (dimCon > 0)
-                            em += x[iT].getX(dimCon-1) + "; ";
+                            em += x[iP].getX(dimCon-1) + "; ";
                         // Write the discrete variables
 			for (int i=0; i < dimDis-1; i++)
-			    em += x[iT].getIndex(i) + ", ";
+			    em += x[iP].getIndex(i) + ", ";
                         if (dimDis > 0)
-                            em += x[iT].getIndex(dimDis-1) + ")." + LS;
+                            em += x[iP].getIndex(dimDis-1) + ")." + LS;
 		    }
-		    setWarning( em + e.getMessage(), x[iT].getSimulationNumber() );
+		    setWarning( em + e.getMessage(), x[iP].getSimulationNumber() );
 		    double[] f = new double[dimF];
 		    for(int i=0; i<dimF; i++)
 			f[i] = 0;
-		    x[iT].setF(f);
-		    x[iT].setComment("Error during function evaluation. See log file.");
+		    x[iP].setF(f);
+		    if ( e instanceof SimulationTimeoutException )
+			x[iP].setComment("Simulation exceeded its time limit. See log file.");
+		    else
+			x[iP].setComment("Error during function evaluation. See log file.");
 		}
 		// proceed as usual
 	    }
 	}
-	// shut down thread pool
-	exec.shutdown();
 	// copy points that did not require a simulation because they were more than once
 	// in the vector x
 	for(int iP = 0; iP < x.length; iP++){
@@ -960,6 +1078,140 @@ abstract public class Optimizer
 	return r[0];
     }
 
+    /** Submits the point x for evaluation and returns immediately.
+     *
+     * The returned future completes with a clone of the point that has its
+     * function values stored. If the point has already been evaluated, then
+     * the returned future is already completed. If the same point is currently
+     * being evaluated, then no second simulation is started.
+     * If the evaluation fails, then the future completes exceptionally with
+     * the exception of the simulation.<BR>
+     * Use {@link #submitAll(Point[])} to process the points in the order in which
+     * their evaluations complete.
+     *
+     * @param x the point being evaluated
+     * @return the future that completes when the point has been evaluated
+     * @exception OptimizerException if an OptimizerException occurs or
+     *           if the user required to stop GenOpt
+     * @exception IOException if an I/O error occurs when reporting the lowest point
+     */
+    public CompletableFuture<Point> submit(Point x)
+	throws OptimizerException, IOException{
+	assert x != null : "Received 'null' as argument";
+	// check whether GenOpt has to be stopped due to a user interaction
+	if (data.mustStopOptimization()){
+	    reportCurrentLowestPoint();
+	    throw new OptimizerException(GenOpt.USER_STOP_MESSAGE);
+	}
+	final Point[] r = new Point[1];
+	r[0] = (Point)x.clone();
+	r[0].setStepNumber(stepNumber);
+	if ( !setKnownFunctionValues(r)[0] ){
+	    r[0].setSimulationNumber( genopt.db.ResultManager.getNumberOfSimulation() );
+	    return CompletableFuture.completedFuture(r[0]);
+	}
+	final CompletableFuture<Point> pen = penEva.get(_getKey(r[0]));
+	if ( pen != null ){ // point is currently being evaluated
+	    return pen.thenApply(new Function<Point, Point>(){
+		    public Point apply(Point p){
+			Point c = (Point)r[0].clone();
+			c.setF( p.getF() );
+			c.setSimulationNumber( p.getSimulationNumber() );
+			return c;
+		    }
+		});
+	}
+	genopt.db.ResultManager.increaseNumberOfFunctionEvaluation();
+	r[0].setSimulationNumber( genopt.db.ResultManager.getNumberOfSimulation() );
+	return _submit(r[0], new AtomicInteger(0)).whenComplete(new BiConsumer<Point, Throwable>(){
+		public void accept(Point p, Throwable t){
+		    firstSimulations = false;
+		}
+	    });
+    }
+
+    /** Submits the points x for evaluation and returns immediately.
+     *
+     * @param x the points being evaluated
+     * @return the iterator that returns the evaluated points in the order in which 
+     *         their evaluations complete
+     * @exception OptimizerException if an OptimizerException occurs or
+     *           if the user required to stop GenOpt
+     * @exception IOException if an I/O error occurs when reporting the lowest point
+     */
+    public CompletionIterator submitAll(Point[] x)
+	throws OptimizerException, IOException{
+	assert x != null : "Received 'null' as argument";
+	List<CompletableFuture<Point>> r = new ArrayList<CompletableFuture<Point>>(x.length);
+	for (int iP = 0; iP < x.length; iP++)
+	    r.add( submit(x[iP]) );
+	return new CompletionIterator(r);
+    }
+
+    /** Submits the simulation of the point x to the simulation executor.
+     *
+     * The point must have its simulation number set. It is updated by the simulation.
+     * Until the simulation completed, the future is stored in the map of pending evaluations.
+     *
+     * @param x the point being evaluated
+     * @param iExc the exception counter shared by the simulations of the same batch
+     * @return the future that completes with x when the simulation completed
+     * @exception OptimizerException if the simulation executor has been shut down
+     */
+    private CompletableFuture<Point> _submit(final Point x, final AtomicInteger iExc)
+	throws OptimizerException{
+	final Point key = _getKey(x);
+	final CompletableFuture<Point> r = 
+	    data.SimExe.submit(new SimulationThread(this, x, iExc)).thenApply(new Function<Void, Point>(){
+		    public Point apply(Void v){
+			return x;
+		    }
+		});
+	penEva.put(key, r);
+	r.whenComplete(new BiConsumer<Point, Throwable>(){
+		public void accept(Point p, Throwable t){
+		    penEva.remove(key);
+		}
+	    });
+	return r;
+    }
+
+    /** Waits for the future and returns its result.
+     *
+     * @param f the future
+     * @return the result of the future
+     * @exception InterruptedException if the current thread is interrupted while waiting
+     * @exception Exception the exception with which the future completed
+     */
+    private static Object _getResult(final CompletableFuture<?> f)
+	throws InterruptedException, Exception{
+	try{
+	    return f.get();
+	}
+	catch(ExecutionException e){
+	    final Throwable t = e.getCause();
+	    if (t instanceof Exception)
+		throw (Exception)t;
+	    if (t instanceof Error)
+		throw (Error)t;
+	    throw e;
+	}
+    }
+
+    /** Gets the key that is used to look up the point x in the map of evaluated points.
+     *
+     * @param x the point
+     * @return a clone of x with the step number set as used for the look up
+     */
+    private Point _getKey(final Point x){
+	Point r = (Point)x.clone();
+	if (wriSteNum) // step number is written, hence it may be used for penalty functions
+	    r.setStepNumber(stepNumber);
+	else // step number is not used. Set to 1 
+	    r.setStepNumber(1);
+	return r;
+    }
+
     /** Sets the function values in these points that are already known.
      * @param x the points for which the function values are needed
      * @return a vectors with elements set to <code>true</code> if a simulation is needed
@@ -971,16 +1223,24 @@ abstract public class Optimizer
 	throws OptimizerException{
 	boolean[] r = new boolean[x.length];
 	Point[] key = new Point[x.length];
+	final double bou = objBou;
 	////////////////////////////////////////////////////////
 	// check whether this point has already been evaluated
 	for (int i = 0; i < x.length; i++){
-	    key[i] = (Point)x[i].clone();
-	    if (wriSteNum) // step number is written, hence it may be used for penalty functions
-		key[i].setStepNumber(stepNumber);
-	    else // step number is not used. Set to 1 
-		key[i].setStepNumber(1);
+	    key[i] = _getKey(x[i]);
 	    r[i] = !evaPoi.containsKey(key[i]);
-	    if( !r[i] ){
+	    if ( r[i] ){
+		// The simulation of the point may have been stopped at a lower bound
+		// of the function value. If the current bound does not exceed the lower
+		// bound, then the simulation would be stopped again.
+		final Double lowBou = bouPoi.get(key[i]);
+		if ( lowBou != null && lowBou.doubleValue() >= bou ){
+		    x[i].setF(new double[] { lowBou.doubleValue() });
+		    x[i].setComment(BOUND_COMMENT + nameF[0] + ".");
+		    r[i] = false;
+		}
+	    }
+	    else{
 		////////////////////////////////////////////////////////
 		// Point already evaluated
 		// set its function value
@@ -1033,6 +1293,52 @@ abstract public class Optimizer
 	}
     }
     
+    /** Gets the order in which the simulations of a batch are started.<BR>
+     * The points are sorted by their predicted duration in descending order.
+     * If no duration can be predicted, then the points are started in the order of the array.
+     *
+     * @param x the points of the batch
+     * @param evaluate flags, <code>true</code> if a point requires a simulation
+     * @param preDur array in which the predicted durations in seconds are stored,
+     *        or <code>Double.NaN</code> if no duration can be predicted
+     * @return the indices of the points in the order in which they are started
+     */
+    private Integer[] _getDispatchOrder(final Point[] x, final boolean[] evaluate, final double[] preDur){
+	final Integer[] r = new Integer[x.length];
+	for(int iP = 0; iP < x.length; iP++){
+	    r[iP] = iP;
+	    preDur[iP] = evaluate[iP] ? durMod.predict(_getCoordinates(x[iP])) : 0;
+	    if ( Double.isNaN(preDur[iP]) ){
+		Arrays.fill(preDur, Double.NaN);
+		for(int i = iP+1; i < x.length; i++)
+		    r[i] = i;
+		return r;
+	    }
+	}
+	// the sort is stable, hence points with equal predictions keep their order
+	Arrays.sort(r, new Comparator<Integer>(){
+		public int compare(Integer i, Integer j){
+		    return Double.compare(preDur[j], preDur[i]);
+		}
+	    });
+	return r;
+    }
+
+    /** Gets the coordinates of a point that are used to predict the duration of its simulation.
+     *
+     * @param x the point
+     * @return the values of the continuous parameters, followed by the indices of the
+     *         discrete parameters
+     */
+    private double[] _getCoordinates(final Point x){
+	final double[] r = new double[dimCon + dimDis];
+	for (int i = 0; i < dimCon; i++)
+	    r[i] = x.getX(i);
+	for (int i = 0; i < dimDis; i++)
+	    r[dimCon+i] = x.getIndex(i);
+	return r;
+    }
+
     /** Evaluates the simulation based on the parameter set x<BR>
      * @param x the point being evaluated
      * @exception OptimizerException if an OptimizerException occurs or
@@ -1066,11 +1372,19 @@ abstract public class Optimizer
 		key = _evaluateSimulation((Point)x.clone());
 	    }
 	    catch(Exception e){
+		// a simulation that exceeded its time limit is likely to exceed it again
+		if ( e instanceof SimulationTimeoutException && !data.SimSta.retryAfterTimeout() )
+		    throw e;
 		key = _retryEvaluateSimulation((Point)x.clone(), e);
 	    }
-	    
 	}
 
+	// add the run time of the simulation program to the model that orders the simulations 
+	// of a batch. It is not known for simulations that were stopped at a bound.
+	final double dur = data.SimSta.getLastDuration();
+	if ( !Double.isNaN(dur) )
+	    durMod.add(_getCoordinates(x), dur);
+
 	// add point and function value to the map of evaluated points
 	Double[] val = new Double[key.getDimensionF()];
 	for (int i = 0; i < val.length; i++)
@@ -1084,9 +1398,25 @@ abstract public class Optimizer
 	// we must clone the object that we put into the TreeMap
 	// Otherwise, it's coordinates get changed since the map
 	// contains only a reference to the instance.
-	evaPoi.put((Point)key.clone(), val);
+	// A function value that is only a lower bound is stored separately, as it is
+	// only valid as long as the bound does not exceed it. Otherwise, for example
+	// for another initial point, the point is simulated again.
+	if ( key.getComment().startsWith(BOUND_COMMENT) )
+	    bouPoi.put((Point)key.clone(), val[0]);
+	else
+	    evaPoi.put((Point)key.clone(), val);
 	x.setStepNumber(stepNumber); // set actual step number
 	x.setF(key.getF());
+	// the comment is set if the simulation was stopped at a lower bound
+	x.setComment(key.getComment());
+    }
+
+    /** Gets the statistics of the batches of simulations whose durations have been predicted.
+     *
+     * @return the statistics, or an empty String if no batch has been predicted
+     */
+    public static String getBatchStatistics(){
+	return ( durMod == null ) ? "" : durMod.getBatchStatistics();
     }
 
     /** Tries to evaluate the simulation a second time if an exception has been
@@ -1177,13 +1507,12 @@ abstract public class Optimizer
     private Point _evaluateSimulation(final Point x)
 	throws OptimizerException, SimulationInputException, 
 	       NoSuchMethodException, IllegalAccessException, InvocationTargetException, Exception{
-	// flag used for collecting Exceptions before throwing them
-	boolean exit = false;
-	// replace values in input file contents and write input file
-	FileHandler[] SimulationInput = new FileHandler[nSimInpFil];
-	// simulation input files
-	for (int i = 0; i < nSimInpFil; i++)
-	    SimulationInput[i] = new FileHandler(simInpTemFilHan[i].getFileContentsString());
+	// parameters for a simulation that is evaluated in GenOpt's Java virtual machine
+	// or by a persistent worker, which do not use the simulation input files
+	final Map<String, Double> inProPar = data.SimSta.usesFiles() ? 
+	    null : new LinkedHashMap<String, Double>();
+	// values of the placeholders of the simulation input templates
+	final Map<String, String> inpVal = (inProPar == null) ? new HashMap<String, String>() : null;
 
 	// Formulas of the input function objects
 	String[] inpFun = new String[dimInpFun];
@@ -1208,9 +1537,11 @@ abstract public class Optimizer
 		data.disPar[j-dimCon].getValueString( x.getIndex(j-dimCon) );
 
 	    final String repl = "%" + varNam + "%";
-	    boolean found = _replaceInInputFile(repl, varVal, SimulationInput);
+	    boolean found = _putInputValue(inpVal, varNam, varVal);
 	    found = ( Optimizer.replace(inpFun, repl, varVal) || found );
 	    found = ( Optimizer.replace(outFun, repl, varVal) || found  );
+	    if (inProPar != null)
+		found = _putInProcessParameter(inProPar, varNam, varVal);
 	    // check whether we found the value at least once
 	    if (!found) // variable was not found in input file
 		_variableNotFound(repl);
@@ -1220,9 +1551,11 @@ abstract public class Optimizer
 	if (wriSteNum){
 	    final String repl = "%stepNumber%";
 	    final String varVal = String.valueOf(stepNumber);
-	    boolean found = _replaceInInputFile(repl, varVal, SimulationInput);
+	    boolean found = _putInputValue(inpVal, "stepNumber", varVal);
 	    found = ( Optimizer.replace(inpFun, repl, varVal) || found );
 	    found = ( Optimizer.replace(outFun, repl, varVal) || found );
+	    if (inProPar != null)
+		found = _putInProcessParameter(inProPar, "stepNumber", varVal);
 	    
 	    // check for wrong input file specification
 	    if (!found){ // variable was not found in input file
@@ -1243,18 +1576,54 @@ abstract public class Optimizer
 
 	    FunctionEvaluator fe = new FunctionEvaluator( varNam, inpFun[k]);
 	    final String varVal = String.valueOf(fe.evaluate());
-	    found = ( _replaceInInputFile(repl, varVal, SimulationInput) || found );
+	    found = ( _putInputValue(inpVal, varNam, varVal) || found );
 	    // replace result in output function objects 
 	    // (there are no references to input function objects)
 	    found = ( Optimizer.replace(outFun, repl, varVal) || found );
+	    if (inProPar != null)
+		found = _putInProcessParameter(inProPar, varNam, varVal);
 	    // check whether we found the value at least once
 	    if (!found) // variable was not found in input file
 		_variableNotFound(repl);
 	}
+	if (inProPar != null)
+	    return _evaluateInProcess(x, inProPar, outFun);
+
+	// the working directory is reused by later simulations
+	final WorkingDirectoryPool worDirPoo = data.SimSta.getWorkingDirectoryPool();
+	final String pooDirPre = worDirPoo.acquire();
+	try{
+	    return _evaluateSimulation(x, inpVal, outFun, worDirPoo, pooDirPre);
+	}
+	catch(Exception e){
+	    // the working directory of a failed simulation is not reused, so that it can be inspected
+	    final File dir = worDirPoo.getDirectory(pooDirPre);
+	    if ( dir.isDirectory() )
+		setInfo("The files of the simulation are kept in the directory '" + 
+			dir.getAbsolutePath() + "'.", x.getSimulationNumber());
+	    throw e;
+	}
+    }
 
+    /** Writes the simulation input files, launches the simulation and 
+     *  reads the values of the objective function.
+     * @param x the point being evaluated
+     * @param inpVal the values of the placeholders of the simulation input templates
+     * @param outFun the formulas of the output function objects
+     * @param worDirPoo the pool of the working directories
+     * @param pooDirPre the working directory prefix of the directory from the pool
+     * @return a clone of the points object with the new function values stored
+     * @exception OptimizerException if an OptimizerException occurs
+     * @exception Exception if an exception occurs
+     */
+    private Point _evaluateSimulation(final Point x, final Map<String, String> inpVal, String[] outFun,
+				      final WorkingDirectoryPool worDirPoo, final String pooDirPre)
+	throws OptimizerException, Exception{
+	// flag used for collecting Exceptions before throwing them
+	boolean exit = false;
 	// write simulation input files
 	final int simNum = x.getSimulationNumber();
-	final String worDirPre = "tmp-genopt-run-" + simNum;
+	String worDirPre = pooDirPre;
 	String[] simInpPat = new String[nSimInpFil];
 	String[] simOutPat = new String[nSimOutFil];
 	String[] simLogPat = new String[nSimLogFil];
@@ -1297,13 +1666,62 @@ abstract public class Optimizer
 	}
 	if (exit) throw new OptimizerException(errMes);
 	// write input files
-	for (int iFil = 0; iFil < nSimInpFil; iFil++)
-	    SimulationInput[iFil].writeFile(simInpPat[iFil], data.OptIni.getSimInpFilNam(iFil));
+	for (int iFil = 0; iFil < nSimInpFil; iFil++){
+	    if ( simInpTemFil[iFil] == null )
+		simInpTem[iFil].writeFile(inpVal, simInpPat[iFil], data.OptIni.getSimInpFilNam(iFil));
+	    else{
+		// the file does not depend on the parameters, hence it is linked 
+		// only once into the working directory, which is reused.
+		// A copy, or a file that the simulation put in place of the link,
+		// is replaced, as it may have been changed by the simulation.
+		final File des = new File(simInpPat[iFil], data.OptIni.getSimInpFilNam(iFil));
+		if ( !Files.isSymbolicLink(des.toPath()) ){
+		    des.getParentFile().mkdirs();
+		    Files.deleteIfExists(des.toPath());
+		    WorkingDirectoryPool.symbolicLink(simInpTemFil[iFil], des);
+		}
+	    }
+	}
 	////////////////////////////////////////////////////////////
 	////////////////////////////////////////////////////////////
 	// start simulation
 	//		println("**** Optimizer: Start for simNum = " + simNum);
-	data.SimSta.run(worDirPre);
+	final double bou = ( dimF == 1 && !objFunObj[0].isFunction() ) ? objBou : Double.POSITIVE_INFINITY;
+	final String runDirPre;
+	try{
+	    runDirPre = data.SimSta.run(worDirPre, bou);
+	}
+	catch(SimulationBoundException e){
+	    // the point cannot improve the current iterate. Its function value is
+	    // a lower bound, which is stored as the function value
+	    print("Simulation " + simNum + ": stopped at " + nameF[0] + "\t= " + e.getLowerBound() + LS);
+	    Point r = (Point)x.clone();
+	    r.setF(new double[] { e.getLowerBound() });
+	    r.setComment(BOUND_COMMENT + nameF[0] + ".");
+	    data.SimExe.getCleanupQueue().submit(new Runnable(){
+		    public void run(){
+			worDirPoo.release(pooDirPre);
+		    }
+		});
+	    return r;
+	}
+	if ( !runDirPre.equals(worDirPre) ){
+	    // a duplicate of the simulation completed first, use the files in its directory
+	    worDirPre = runDirPre;
+	    for (int i = 0; i < nSimInpFil; i++)
+		simInpPat[i] = data.OptIni.convertToTemporaryPath(data.OptIni.getSimInpPat(i),
+								  worDirPre);
+	    for (int iFil = 0; iFil < nSimOutFil; iFil++){
+		simOutPat[iFil] = data.OptIni.convertToTemporaryPath(data.OptIni.getSimOutPat(iFil),
+								     worDirPre);
+		simOutFil[iFil] = simOutPat[iFil] + FS + data.OptIni.getSimOutFilNam(iFil) ;
+	    }
+	    for (int iFil = 0; iFil < nSimLogFil; iFil++){
+		simLogPat[iFil] = data.OptIni.convertToTemporaryPath(data.OptIni.getSimLogPat(iFil),
+								     worDirPre);
+		simLogFil[iFil] = simLogPat[iFil] + FS + data.OptIni.getSimLogFilNam(iFil);
+	    }
+	}
 	//	System.err.println("**** Optimizer: Ended for simNum = " + simNum);
 	//		  System.err.print("Go to sleep...   ");
 	//		  Thread.sleep(1000);
@@ -1353,49 +1771,45 @@ abstract public class Optimizer
 	    simOutFilHan[iOutFil] = new SimOutputFileHandler(simOutFil[iOutFil],
 							     separator);
 	
-	// in first function call, construct the pointer "funValPoi" that shows
-	// which function value is in what file
-	if ( simNum > 1 ){
-	    while( functionValuesParsed.get() == false ) { funValParLat.await(); }
-	    for (int iFx = 0; iFx < dimF; iFx++){
-		if ( ! objFunObj[iFx].isFunction() ){
-		    final String del = objFunObj[iFx].getDelimiter();
-		    final int firstCharAt = objFunObj[iFx].getFirstCharAt();
-		    objFunVal[iFx] = simOutFilHan[funValPoi[iFx]].getObjectiveFunctionValue(del, 
-											    firstCharAt);
-		}
-	    }
-	} // simSum > 1
-	else{ // first call. Establish mapping of function value objects
-	    for (int iFx = 0; iFx < dimF; iFx++){
-		if ( objFunObj[iFx].isFunction() ){
-		    // objective function is defined by a function object
-		    funValPoi[iFx] = -1;
-		}
-		else{
-		    final String del = objFunObj[iFx].getDelimiter();
-		    final int firstCharAt = objFunObj[iFx].getFirstCharAt();
-		    for(int iFil=0; iFil < nSimOutFil; iFil++){
-			try{
-			    objFunVal[iFx] = simOutFilHan[iFil].getObjectiveFunctionValue(del,
-											  firstCharAt);
-			    funValPoi[iFx] = iFil;
-			    iFil = nSimOutFil; // to get out of the inner for loop
-			}
-			catch(OptimizerException e){
-			    if (iFil == (nSimOutFil-1)){
-				// the next two lines need to be present to avoid a deadlock
-				functionValuesParsed.set(true);
-				funValParLat.countDown();
-				throw e; // f(x) not found in any file
+	// the first simulation that succeeds constructs the pointer "funValPoi" that shows
+	// which function value is in what file. The other simulations wait for it,
+	// and construct the pointer themselves if that simulation failed.
+	synchronized(functionValuesParsed){
+	    if ( functionValuesParsed.get() == false ){
+		final int[] poi = new int[dimF];
+		for (int iFx = 0; iFx < dimF; iFx++){
+		    if ( objFunObj[iFx].isFunction() ){
+			// objective function is defined by a function object
+			poi[iFx] = -1;
+		    }
+		    else{
+			final String del = objFunObj[iFx].getDelimiter();
+			final int firstCharAt = objFunObj[iFx].getFirstCharAt();
+			for(int iFil=0; iFil < nSimOutFil; iFil++){
+			    try{
+				simOutFilHan[iFil].getObjectiveFunctionValue(del, firstCharAt);
+				poi[iFx] = iFil;
+				iFil = nSimOutFil; // to get out of the inner for loop
+			    }
+			    catch(OptimizerException e){
+				if (iFil == (nSimOutFil-1))
+				    throw e; // f(x) not found in any file
 			    }
 			}
 		    }
 		}
+		System.arraycopy(poi, 0, funValPoi, 0, dimF);
 		functionValuesParsed.set(true);
-		funValParLat.countDown();
-	    } // for loop
-	} // first call branch
+	    }
+	}
+	for (int iFx = 0; iFx < dimF; iFx++){
+	    if ( ! objFunObj[iFx].isFunction() ){
+		final String del = objFunObj[iFx].getDelimiter();
+		final int firstCharAt = objFunObj[iFx].getFirstCharAt();
+		objFunVal[iFx] = simOutFilHan[funValPoi[iFx]].getObjectiveFunctionValue(del, 
+											firstCharAt);
+	    }
+	}
 			
 	/////////////////////////////////////////////////////
 	// process function objects
@@ -1417,55 +1831,108 @@ abstract public class Optimizer
 	// data handling
 	Point r = (Point)x.clone();
 	r.setF(objFunVal);
-	// Copy run files
-	_copyRunFiles(data.OptIni.getSimInpSavPat(), simInpPat,
-		      data.OptIni.getSimInpFilNam(), simNum);
-	_copyRunFiles(data.OptIni.getSimLogSavPat(), simLogPat, 
-		      data.OptIni.getSimLogFilNam(), simNum);
-	_copyRunFiles(data.OptIni.getSimOutSavPat(), simOutPat, 
-		      data.OptIni.getSimOutFilNam(), simNum);
-
-
-	// Run the garbage collector. Otherwise, in EnergyPlus simulation under
-	// Windows XP, the .err and .eso file may not be released and hence
-	// it cannot be deleted by the lines below
-	System.gc();
-	// Delete temporary working directories
-	// First, we make sure that they are really temporary to prevent wipping out
-	// non-temporary files. This is more a prevention for developers, since
-	// the test is always true unless there is a coding error.
-	for (int iFil = 0; iFil < nSimInpFil; iFil++){
-	    if ( simInpPat[iFil].contains(worDirPre))
-		genopt.io.FileHandler.deleteDirectory( new File(simInpPat[iFil]) );
-	    else
-		throw new OptimizerException("Program error. Attempted to delete non-temporary file.");
+	// Copy run files and return the working directory to the pool.
+	// This is done in the background so that the next simulation can start.
+	data.SimExe.getCleanupQueue().submit(new Runnable(){
+		public void run(){
+		    try{
+			_copyRunFiles(data.OptIni.getSimInpSavPat(), simInpPat,
+				      data.OptIni.getSimInpFilNam(), simNum);
+			_copyRunFiles(data.OptIni.getSimLogSavPat(), simLogPat, 
+				      data.OptIni.getSimLogFilNam(), simNum);
+			_copyRunFiles(data.OptIni.getSimOutSavPat(), simOutPat, 
+				      data.OptIni.getSimOutFilNam(), simNum);
+		    }
+		    catch(Exception e){
+			// keep the working directory so that the files are not lost
+			setWarning("Cannot save the simulation files: " + e.getMessage(), simNum);
+			return;
+		    }
+		    // Run the garbage collector. Otherwise, in EnergyPlus simulation under
+		    // Windows XP, the .err and .eso file may not be released and hence
+		    // they cannot be deleted or overwritten by the next simulation
+		    if (WINDOWS)
+			System.gc();
+		    // If a duplicate of the simulation completed first, then the working
+		    // directory has been deleted, and the working directory of the
+		    // duplicate is no longer needed.
+		    if ( !runDirPre.equals(pooDirPre) )
+			worDirPoo.delete(runDirPre);
+		    worDirPoo.release(pooDirPre);
+		}
+	    });
+	return r;
+    }
+
+    /** Adds a parameter for a simulation that is evaluated in GenOpt's Java virtual machine
+     *  or by a persistent worker.
+     * @param parameters the parameters
+     * @param name the name of the parameter
+     * @param value the value of the parameter
+     * @return <code>true</code>
+     * @exception OptimizerException if the value is not a number
+     */
+    private static boolean _putInProcessParameter(final Map<String, Double> parameters,
+						  final String name, final String value)
+	throws OptimizerException{
+	try{
+	    parameters.put(name, Double.valueOf(value));
 	}
-	for (int iFil = 0; iFil < nSimOutFil; iFil++){
-	    if ( simOutPat[iFil].contains(worDirPre))
-		genopt.io.FileHandler.deleteDirectory( new File(simOutPat[iFil]) );
-	    else
-		throw new OptimizerException("Program error. Attempted to delete non-temporary file.");
+	catch(NumberFormatException e){
+	    throw new OptimizerException("Parameter '" + name + "' has the value '" + value + 
+					 "', which is not a number." + LS +
+					 "Only numbers can be passed to a simulation class or a simulation worker.");
 	}
-	for (int iFil = 0; iFil < nSimLogFil; iFil++){
-	    if ( simLogPat[iFil].contains(worDirPre))
-		genopt.io.FileHandler.deleteDirectory( new File(simLogPat[iFil]) );
-	    else
-		throw new OptimizerException("Program error. Attempted to delete non-temporary file.");
+	return true;
+    }
+
+    /** Evaluates a simulation in GenOpt's Java virtual machine or by a persistent worker.
+     * @param x the point to be evaluated
+     * @param parameters the names and values of the parameters
+     * @param outFun the output function objects, or <code>null</code> for
+     *        objective functions that are not defined by a function object
+     * @return the point with the function values
+     * @exception OptimizerException if the simulation fails
+     * @exception Exception if an Exception occurs
+     */
+    private Point _evaluateInProcess(final Point x, final Map<String, Double> parameters,
+				     final String[] outFun)
+	throws OptimizerException, Exception{
+	final int simNum = x.getSimulationNumber();
+	double[] objFunVal = data.SimSta.evaluate(Collections.unmodifiableMap(parameters));
+	if ( objFunVal == null || objFunVal.length != dimF )
+	    throw new OptimizerException("Simulation " + simNum + ": The simulation returned " +
+					 ( (objFunVal == null) ? "null" : String.valueOf(objFunVal.length) + " values" ) +
+					 ", but " + dimF + " values are required.");
+	objFunVal = Optimizer._processResultFunction(outFun, objFunVal.clone());
+	// write result to GUI or console
+	String p = "";
+	for (int iFx = 0; iFx < dimF; iFx++){
+	    p += "Simulation " + simNum + ": " + 
+		nameF[iFx] + "\t= " + objFunVal[iFx] + LS;
 	}
+	print(p);
+	Point r = (Point)x.clone();
+	r.setF(objFunVal);
 	return r;
     }
 
-    /** Replaces <code>text</code> with <code>value</code> in <code>simulationInput</code>.
-     * @param text text to be searched for
-     * @param value value that will replace <code>text</code>
-     * @param simulationInput file handler in which search will take place
-     * @return <code>true</code> if <code>text</code> was found, <code>false</code> otherwise
+    /** Sets the value of a placeholder of the simulation input templates.
+     * @param values the values of the placeholders, or <code>null</code> if
+     *        no simulation input files are written
+     * @param name the name of the placeholder, without the enclosing <code>%</code>
+     * @param value the value of the placeholder
+     * @return <code>true</code> if the placeholder occurs in a simulation input template, 
+     *         <code>false</code> otherwise
      */
-    private static boolean _replaceInInputFile(final String text, final String value,
-					final FileHandler[] simulationInput){
+    private static boolean _putInputValue(final Map<String, String> values, final String name,
+					  final String value){
+	if ( values == null )
+	    return false;
+	values.put(name, value);
 	boolean found = false;
-	for (int i = 0; i < simulationInput.length; i++)
-	    if ( simulationInput[i].replaceString(text, value) )
+	for (int i = 0; i < simInpTem.length; i++)
+	    if ( simInpTem[i].contains(name) )
 		found = true;
 	return found;
     }
@@ -2087,9 +2554,6 @@ abstract public class Optimizer
     /** The name of the function values */
     static private String[] nameF;
     
-    /** Count down latch for parallel function evaluations */
-    public static CountDownLatch done;
-
     /** The reference to the GenOpt kernel */
     static private GenOpt data;
     /** The section <CODE>Algorithm</CODE> of the command file */
@@ -2112,7 +2576,10 @@ abstract public class Optimizer
 	surrogate function and then only seek to optimize the surrogate. */
     static private boolean useSteNum;
     /** The simulation input template file handler */
-    static private FileHandler[] simInpTemFilHan;
+    static private CompiledTemplate[] simInpTem;
+    /** The simulation input template files that contain no placeholder, or <CODE>null</CODE>
+	for the templates that contain a placeholder */
+    static private File[] simInpTemFil;
     //    /** The simulation log file names (incl. path) */
     //    static private String[] simLogFil;
     //    /** The simulation output file names (incl. path) */
@@ -2134,18 +2601,27 @@ abstract public class Optimizer
         <CODE>genopt.algorithm.util.math.Point.compareTo(java.lang.Object o)</CODE>
     */
     static private Map<Point, Double[]> evaPoi;
+    /** The points whose simulation was stopped at a lower bound, and the lower bounds */
+    static private Map<Point, Double> bouPoi;
+    /** The points that are currently evaluated, and the futures of their evaluations */
+    static private Map<Point, CompletableFuture<Point>> penEva;
+    /** Beginning of the comment of a point whose simulation was stopped at a lower bound */
+    private final static String BOUND_COMMENT = "Simulation stopped at lower bound of ";
+    /** The model that predicts the durations of the simulations */
+    static private DurationModel durMod;
     /** The maximum number of threads in the pool */
     static private int maxThrPoo;
-    /** Flag that indicates whether function values have been parsed at least once */
+    /** Flag that indicates whether the function value pointer <tt>funValPoi</tt> has been set.
+     *  It is also the lock of the construction of the pointer */
     static private AtomicBoolean functionValuesParsed;
 
-    /** Count down latch, if 0, the function value pointer <tt>funValPoi</tt> has been set */
-    private CountDownLatch funValParLat;
-
     /** Flag that indicates whether the set of points that are currently evaluated are the
      *  first simulations.
      *
      *  If the flag is <code>true</code>, then no second simulation is done in case of an error.
      */
-    private boolean firstSimulations;
+    private volatile boolean firstSimulations;
+
+    /** The bound of the objective function above which simulations are stopped */
+    private volatile double objBou = Double.POSITIVE_INFINITY;
 }
@@ -511,7 +511,17 @@ abstract public class ModelGPS extends Optimizer
 		}
 	    case 2: // local search
 		println("Perform local search.");
-		xLoc = localSearch(x, Delta);
+		// Without a sufficient decrease condition, a point whose cost exceeds
+		// the cost of the current iterate is not accepted. Hence, its simulation
+		// can be stopped once its partial cost exceeds this value.
+		if ( PhiFun == null )
+		    setObjectiveBound(x[k].getF(0));
+		try{
+		    xLoc = localSearch(x, Delta);
+		}
+		finally{
+		    setObjectiveBound(Double.POSITIVE_INFINITY);
+		}
 		assert(xLoc != null) : "xLoc = null in case 2.";
 		// in any case, we go to step 3
 	    case 3: // parameter update
@@ -536,6 +536,15 @@ public class OptimizationIni implements Cloneable
      */
     public final boolean isObjectiveFunctionDelimiterSet() { return objFunMapIsSet; }
 
+    /** sets the directory in which the temporary directories of the simulations
+     *  are created
+     * @param path the directory, or <code>null</code> to use the directory
+     *        of the optimization initialization file
+     */
+    public final void setTemporaryPath(final String path){
+	TmpPat = (path == null) ? null : new String(path);
+    }
+
     /** converts the argument <code>path</code> to the temporary path that will be used
      *  for the simulation
      * @param path the original path as specified in GenOpt's files
@@ -547,18 +556,24 @@ public class OptimizationIni implements Cloneable
 	// insert new directory name if the original string starts with the path
 	// of the optimization initialization file
 	if ( path.startsWith(ori) ){
+	    final String roo = (TmpPat == null) ? ori : TmpPat;
 	    String rep;
 	    // create new directory name
-	    if (ori.endsWith(FS)) 
-		rep = new String(ori + dirName + FS);
+	    if (roo.endsWith(FS)) 
+		rep = new String(roo + dirName);
 	    else
-		rep = new String(ori + FS + dirName);
+		rep = new String(roo + FS + dirName);
+	    if (ori.endsWith(FS))
+		rep += FS;
 	    return new String(rep + path.substring(ori.length()));
 	}
 	else
 	    return new String(path);
     }
 
+    /** path name: Directory for the temporary directories (<code>null</code> if
+	it is the directory of the optimization initialization file) */
+    protected String TmpPat;
     /** file name: Simulation input template */
     protected String[] SimInpTemFilNam;
     /** file name: Simulation input */
@@ -89,6 +89,29 @@ public class OptimizationSettings
 		uniOfExe     = unitsOfExecution;
 		if ( uniOfExe < 1 )
 		    uniOfExe = java.lang.Runtime.getRuntime().availableProcessors();
+		autUniOfExe = false;
+		arcSavFil   = false;
+	}
+
+	/** @param maximumNumberOfIteration the maximum number of iteration
+	  * @param writeStepNumber flag that indicates whether the step number
+	  *        has to written to the simulation input file (<CODE>true</CODE>)
+	  *        or not <CODE>false</CODE>
+	  * @param unitsOfExecution the maximum number of units of executions to be used
+	  * @param autoUnitsOfExecution flag that indicates whether the number of units
+	  *        of execution is adjusted during the run (<CODE>true</CODE>)
+	  *        or not <CODE>false</CODE>
+	  * @param archiveSavedFiles flag that indicates whether the saved simulation
+	  *        files are stored in archives (<CODE>true</CODE>)
+	  *        or as individual files <CODE>false</CODE>
+	  */
+    public OptimizationSettings(int maximumNumberOfIteration, boolean writeStepNumber,
+				int unitsOfExecution, boolean autoUnitsOfExecution,
+				boolean archiveSavedFiles)
+	{
+		this(maximumNumberOfIteration, writeStepNumber, unitsOfExecution);
+		autUniOfExe = autoUnitsOfExecution;
+		arcSavFil   = archiveSavedFiles;
 	}
 
 	/** returns the flag that indicates whether the step number
@@ -109,9 +132,25 @@ public class OptimizationSettings
 	  */
 	public final int getMaxUnitsOfExecution() {return uniOfExe;}
 
+	/** Returns the flag that indicates whether the number of units of execution
+	  * is adjusted during the run.
+	  * @return <CODE>true</CODE> if the number of units of execution is adjusted,
+	  * <CODE>false</CODE> otherwise
+	  */
+	public final boolean autoUnitsOfExecution() {return autUniOfExe;}
+
+	/** Returns the flag that indicates whether the saved simulation files
+	  * are stored in archives.
+	  * @return <CODE>true</CODE> if the saved files are stored in archives,
+	  * <CODE>false</CODE> otherwise
+	  */
+	public final boolean archiveSavedFiles() {return arcSavFil;}
+
     protected int     maxIteration;	
     protected boolean wriSteNum;
     protected int uniOfExe;
+    protected boolean autUniOfExe;
+    protected boolean arcSavFil;
 }
 
 
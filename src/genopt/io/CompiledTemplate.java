@@ -0,0 +1,198 @@
+package genopt.io;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Object that stores a simulation input template as a sequence of literal text
+  * and placeholders of the form <CODE>%name%</CODE>.
+  *
+  * The template is parsed once, and its literal text is stored encoded in direct buffers.
+  * Each simulation input file is then written by one gathering write of these buffers
+  * and of the encoded values, which avoids searching and copying the whole template
+  * for each simulation.
+  * Placeholders are matched from left to right and do not overlap, and only the
+  * names that are passed to the constructor are placeholders.
+  * Any other text, including a <CODE>%</CODE> sign, is written unchanged.
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+public class CompiledTemplate
+{
+    /** Constructor.
+     *
+     * @param template the template
+     * @param names the names of the placeholders, without the enclosing <CODE>%</CODE>
+     */
+    public CompiledTemplate(FileHandler template, Collection<String> names){
+	final String s = template.getFileContents();
+	final Set<String> nam = new HashSet<String>(names);
+	final List<ByteBuffer> lit = new ArrayList<ByteBuffer>();
+	final List<String> slo = new ArrayList<String>();
+	pla = new HashSet<String>();
+	int sta = 0; // start of the current literal text
+	int i = s.indexOf('%');
+	while ( i != -1 ){
+	    final int j = s.indexOf('%', i+1);
+	    if ( j == -1 )
+		break;
+	    final String n = s.substring(i+1, j);
+	    if ( nam.contains(n) ){
+		lit.add(_toBuffer(s.substring(sta, i)));
+		slo.add(n);
+		pla.add(n);
+		sta = j+1;
+		i = s.indexOf('%', sta);
+	    }
+	    else // the closing % may start a placeholder
+		i = j;
+	}
+	lit.add(_toBuffer(s.substring(sta)));
+	this.lit = lit.toArray(new ByteBuffer[lit.size()]);
+	this.slo = slo.toArray(new String[slo.size()]);
+    }
+
+    /** Encodes literal text into a read-only direct buffer.
+     *
+     * @param s the text
+     * @return the buffer
+     */
+    private static ByteBuffer _toBuffer(String s){
+	final byte[] b = s.getBytes(CHARSET);
+	final ByteBuffer r = ByteBuffer.allocateDirect(b.length);
+	r.put(b);
+	r.flip();
+	return r.asReadOnlyBuffer();
+    }
+
+    /** Returns <CODE>true</CODE> if the template contains a placeholder.
+     *
+     * @param name the name of the placeholder, without the enclosing <CODE>%</CODE>
+     * @return <CODE>true</CODE> if the template contains <CODE>%name%</CODE>
+     */
+    public boolean contains(String name){
+	return pla.contains(name);
+    }
+
+    /** Returns <CODE>true</CODE> if the template contains no placeholder,
+     *  in which case all files written from it are identical.
+     *
+     * @return <CODE>true</CODE> if the template contains no placeholder
+     */
+    public boolean isConstant(){
+	return slo.length == 0;
+    }
+
+    /** Writes the template with the placeholders replaced by their values.
+     *
+     * @param values the values of the placeholders. A placeholder without a value
+     *        is written unchanged
+     * @param path path of file
+     * @param name name of file
+     * @exception IOException if an I/O error occurs
+     */
+    public void writeFile(Map<String, String> values, String path, String name)
+	throws IOException{
+	final File dir = new File(path);
+	if (!dir.exists())
+	    dir.mkdirs();
+	// The literal buffers are shared by concurrent simulations, hence each
+	// write uses duplicates, which have their own position.
+	final ByteBuffer[] buf = new ByteBuffer[2*slo.length+1];
+	for (int i = 0; i < slo.length; i++){
+	    buf[2*i] = lit[i].duplicate();
+	    final String v = values.get(slo[i]);
+	    buf[2*i+1] = ByteBuffer.wrap( ( v == null ? "%" + slo[i] + "%" : v ).getBytes(CHARSET) );
+	}
+	buf[2*slo.length] = lit[slo.length].duplicate();
+	try(FileChannel fc = FileChannel.open(new File(dir, name).toPath(), StandardOpenOption.CREATE,
+					      StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+	    int off = 0;
+	    while ( off < buf.length ){
+		fc.write(buf, off, buf.length - off);
+		while ( off < buf.length && !buf[off].hasRemaining() )
+		    off++;
+	    }
+	}
+    }
+
+    /** Character set of the simulation input files, which is the one used by {@link FileHandler} */
+    private final static Charset CHARSET = Charset.defaultCharset();
+
+    /** The literal text before each placeholder, and after the last placeholder */
+    private final ByteBuffer[] lit;
+    /** The names of the placeholders, in the order in which they occur */
+    private final String[] slo;
+    /** The names of the placeholders that occur in the template */
+    private final Set<String> pla;
+}
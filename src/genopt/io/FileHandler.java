@@ -1,5 +1,6 @@
 package genopt.io;
 import java.io.*;
+import java.util.Arrays;
 import java.util.StringTokenizer;
 
 /** Object that handles file reading and writing and offers
@@ -79,12 +80,6 @@ public class FileHandler implements Cloneable{
     /** System dependent file separator */
     protected final static String FS = System.getProperty("file.separator");
 
-    /** Increment for array that stores the Strings */
-    private final int INCREMENT = 1;
-    // leave this at 1: If set to one, then file reading is much faster.
-    // For example, changing this from 1 to 5 results in a 6 times
-    // longer CPU time for reading an annual weather file.
-
 
     /** constructor
 	  * @param FileLines where
@@ -93,8 +88,14 @@ public class FileHandler implements Cloneable{
     public FileHandler(String[] FileLines)
     {
 	nLines = FileLines.length;
-	FileContents = new String[nLines];
-	System.arraycopy(FileLines, 0, FileContents, 0, nLines);
+	linSta = new int[nLines+1];
+	final StringBuilder sb = new StringBuilder();
+	for (int i = 0; i < nLines; i++){
+	    linSta[i] = sb.length();
+	    sb.append(FileLines[i]);
+	}
+	linSta[nLines] = sb.length();
+	FileContents = sb.toString();
     }
 
     /** constructor
@@ -127,21 +128,24 @@ public class FileHandler implements Cloneable{
 	throws IOException, FileNotFoundException, SecurityException
     {
 	nLines = 0;
-	FileContents = new String[30];
+	linSta = new int[1024];
 	String filNam = theFile.getAbsolutePath();
-	FileInputStream fis = new FileInputStream(filNam); 
-	DataInputStream din = new DataInputStream(fis);
-        BufferedReader br = new BufferedReader(new InputStreamReader(din));
-	String linStr; // the line to be read
-	//Read File Line By Line
-	while ((linStr = br.readLine()) != null){
-	    linStr += LS;
-	    // Print the content on the console
-	    addElement(linStr);
+	// The lines are appended to one buffer, and the array with the line offsets
+	// grows geometrically, so that the reading time is linear in the file size.
+	final StringBuilder sb = new StringBuilder((int)Math.min(theFile.length() + 1024, Integer.MAX_VALUE - 8));
+	try(BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(filNam)))){
+	    String linStr; // the line to be read
+	    //Read File Line By Line
+	    while ((linStr = br.readLine()) != null){
+		if ( nLines + 1 >= linSta.length )
+		    linSta = Arrays.copyOf(linSta, 2 * linSta.length);
+		linSta[nLines++] = sb.length();
+		sb.append(linStr).append(LS);
+	    }
 	}
-	//Close the input stream
-	din.close();
-	fis.close();
+	linSta[nLines] = sb.length();
+	linSta = Arrays.copyOf(linSta, nLines+1);
+	FileContents = sb.toString();
     }
 
 
@@ -168,22 +172,6 @@ public class FileHandler implements Cloneable{
     }
 
 
-    /** adds an element to the object
-     * @param s String to be added
-     */
-    private void addElement(final String s)
-    {
-	if (++nLines >= FileContents.length)
-	    FileContents[nLines-1] = new String(s);
-	{
-	    String[] temp = new String[FileContents.length];
-	    System.arraycopy(FileContents, 0, temp, 0, temp.length);
-	    FileContents = new String[FileContents.length + INCREMENT];
-	    System.arraycopy(temp, 0, FileContents, 0, temp.length);
-	}
-	FileContents[nLines-1] = new String(s);
-    }
-
     /** checks if the byte is a line feed ('\n') or a carriage return ('\r')
 	  * @param b the byte value to be checked
 	  * @return <CODE>true</CODE> if <CODE>b</CODE> is a line feed or a carriage return
@@ -203,18 +191,32 @@ public class FileHandler implements Cloneable{
 	  */
     public boolean replaceString(String Find, String Set)
     {	
+	final int finLen = Find.length();
+	int j = ( finLen == 0 ) ? -1 : FileContents.indexOf(Find);
+	if ( j == -1 )
+	    return false;
 	boolean r = false;
-	// get the single strings out of the array, replace the 
-	// 'Find' with 'Set'
+	// copy the file contents line by line, and replace the 
+	// 'Find' with 'Set' unless 'Find' spans over the end of the line
+	final StringBuilder sb = new StringBuilder(FileContents.length());
 	for (int iL = 0; iL < nLines; iL++){
-	    if ( (!r) ){
-		final String old =  new String(FileContents[iL]);
-		FileContents[iL] = FileHandler.replaceAll(Find, Set, FileContents[iL]);
-		r =  ( ! FileContents[iL].equals(old) );
+	    int k = linSta[iL];
+	    final int e = linSta[iL+1];
+	    linSta[iL] = sb.length();
+	    while ( j != -1 && j < e ){
+		if ( j + finLen <= e ){
+		    sb.append(FileContents, k, j).append(Set);
+		    k = j + finLen;
+		    r = r || !Find.equals(Set);
+		    j = FileContents.indexOf(Find, k);
+		}
+		else
+		    j = FileContents.indexOf(Find, j+1);
 	    }
-	    else
-		FileContents[iL] = FileHandler.replaceAll(Find, Set, FileContents[iL]);
+	    sb.append(FileContents, k, e);
 	}
+	linSta[nLines] = sb.length();
+	FileContents = sb.toString();
 	return r;
     }
 
@@ -347,14 +349,35 @@ public class FileHandler implements Cloneable{
 	  */
     public int getLineNumberWithString(String MatchString, int StartLine)
     {
-	int j;
-	int LineNumber = StartLine - 1;
+	int j = FileContents.indexOf(MatchString, linSta[StartLine]);
+	while ( j != -1 ){
+	    final int LineNumber = getLineNumber(j);
+	    if ( j + MatchString.length() <= linSta[LineNumber+1] )
+		return LineNumber;
+	    // 'MatchString' spans over the end of the line
+	    j = FileContents.indexOf(MatchString, j+1);
+	}
+	return -1;
+    }
 
-	do
-	    {
-		j = FileContents[++LineNumber].indexOf(MatchString);
-	    }	while (j == -1 && LineNumber < (nLines-1) );
-	return (j == -1) ? j : LineNumber;
+    /** gets the number of the line that contains a character.
+	  * The first line has number 0.
+	  * @param position position of the character in the file contents
+	  * @return the line number
+	  */
+    private int getLineNumber(int position)
+    {
+	// find the last line that starts at or before 'position'
+	int lo = 0;
+	int hi = nLines - 1;
+	while ( lo < hi ){
+	    final int mid = (lo + hi + 1) >>> 1;
+	    if ( linSta[mid] <= position )
+		lo = mid;
+	    else
+		hi = mid - 1;
+	}
+	return lo;
     }
 
     /** Deletes directories, even if they are not empty
@@ -410,10 +433,20 @@ public class FileHandler implements Cloneable{
     public String[] getFileContentsString()
     {
 	String[] r = new String[nLines];
-	System.arraycopy(FileContents, 0, r, 0, nLines);
+	for (int i = 0; i < nLines; i++)
+	    r[i] = FileContents.substring(linSta[i], linSta[i+1]);
 	return r;
     }
 
+    /** gets the file contents in one String, which is the
+	  * concatenation of all lines
+	  * @return the file contents
+	  */
+    public String getFileContents()
+    {
+	return FileContents;
+    }
+
     /** copies file from source to destination
 	  * @param sourcePath path of source file (or null pointer if file is in current
 	  *    directory)
@@ -508,8 +541,7 @@ public class FileHandler implements Cloneable{
     {
 	String FilNam = new String(pathAndName);
 	FileWriter FilWri = new FileWriter(new String(FilNam.trim()));
-	for (int i = 0; i < nLines; i++)
-	    FilWri.write(FileContents[i], 0, FileContents[i].length());
+	FilWri.write(FileContents);
 	FilWri.close();
     }		
 
@@ -586,10 +618,40 @@ public class FileHandler implements Cloneable{
 	return r;
     }
 
+    /** reads the end of a file.
+	  * At most <CODE>maxBytes</CODE> bytes are read from the end of the file.
+	  * If the file is longer, then the returned String starts with <CODE>[...]</CODE>.
+	  * @param file the file
+	  * @param maxBytes the maximum number of bytes that will be read
+	  * @return the end of the file, or an empty String if the file does not exist
+	  * @exception IOException if an I/O error occurs
+	  */
+    public static String readTail(File file, int maxBytes) throws IOException
+    {
+	if (!file.exists())
+	    return "";
+	RandomAccessFile raf = new RandomAccessFile(file, "r");
+	try{
+	    final long len = raf.length();
+	    final int n = (int)Math.min(len, (long)maxBytes);
+	    byte[] b = new byte[n];
+	    raf.seek(len - n);
+	    raf.readFully(b);
+	    final String r = new String(b);
+	    return (n < len) ? "[...]" + r : r;
+	}
+	finally{
+	    raf.close();
+	}
+    }
+
 
-    /** the content of the file */
-    protected String[] FileContents;
-    /** the number of lines in FileContents (occupied element in <CODE>FileContents</CODE>)*/
+    /** the content of the file, which is the concatenation of all lines */
+    protected String FileContents;
+    /** the start positions of the lines in <CODE>FileContents</CODE>, followed by
+     *  the length of <CODE>FileContents</CODE>*/
+    protected int[] linSta;
+    /** the number of lines in FileContents */
     protected int nLines;
 }
 
@@ -0,0 +1,381 @@
+package genopt.io;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/** Object that stores the saved simulation input, output and log files
+  * in zip archives, rather than as individual files.
+  *
+  * For each save directory, the files are appended to the archive
+  * <CODE>GenOpt-archive-1.zip</CODE>. Once an archive has {@link #MAX_SEGMENT_ENTRIES}
+  * entries or is bigger than {@link #MAX_SEGMENT_SIZE} bytes, it is closed and the 
+  * files are appended to <CODE>GenOpt-archive-2.zip</CODE>, and so on.
+  * The entry name is the name that the file would have without archive,
+  * i.e., the simulation number followed by the file name.<P>
+  *
+  * An archive can only be read after it has been closed. Therefore, each file is 
+  * first moved to the save directory under its entry name, as without archive.
+  * Only after the archive has been closed, its entries are added to the file
+  * {@link #INDEX_FILE_NAME}, which lists the simulation number, the archive and the
+  * entry name, and the files in the save directory are deleted.
+  * If GenOpt terminates without closing the archive, then the files of the archive 
+  * that was being written remain in the save directory. A shutdown hook closes the
+  * archives if the Java virtual machine terminates, for example because it was
+  * interrupted.<P>
+  *
+  * The files of a simulation can be extracted with
+  * <PRE>
+  * java -classpath genopt.jar genopt.io.SaveArchive saveDirectory [simulationNumber [targetDirectory]]
+  * </PRE>
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+public class SaveArchive
+{
+    /** Constructor.
+     */
+    public SaveArchive(){
+	seg = new HashMap<String, Segment>();
+	hoo = new Thread("GenOpt-archive-close"){
+		public void run(){
+		    try{
+			SaveArchive.this.close();
+		    }
+		    catch(IOException e){} // the files of the archive remain in the save directory
+		}
+	    };
+	try{
+	    Runtime.getRuntime().addShutdownHook(hoo);
+	}
+	catch(IllegalStateException | SecurityException e){
+	    hoo = null;
+	}
+    }
+
+    /** Deletes the archives and the index of a save directory.
+     *
+     * @param saveDirectory the save directory
+     */
+    public static void delete(String saveDirectory){
+	final File[] fil = new File(saveDirectory).listFiles();
+	if ( fil == null )
+	    return;
+	for (int i = 0; i < fil.length; i++){
+	    final String nam = fil[i].getName();
+	    if ( nam.equals(INDEX_FILE_NAME) ||
+		 ( nam.startsWith(ARCHIVE_PREFIX) && nam.endsWith(ARCHIVE_SUFFIX) ) )
+		fil[i].delete();
+	}
+    }
+
+    /** Appends a file to the archive of a save directory.
+     *
+     * The file is moved to the save directory, and deleted once the archive has been closed.
+     *
+     * @param saveDirectory the save directory
+     * @param simulationNumber the number of the simulation
+     * @param file the file
+     * @exception IOException if an I/O error occurs
+     */
+    public synchronized void add(String saveDirectory, int simulationNumber, File file)
+	throws IOException{
+	Segment s = seg.get(saveDirectory);
+	if ( s == null || s.size >= MAX_SEGMENT_SIZE || s.entries.size() >= MAX_SEGMENT_ENTRIES ){
+	    final int iSeg = ( s == null ) ? 1 : s.number + 1;
+	    if ( s != null )
+		s.close();
+	    s = new Segment(saveDirectory, iSeg);
+	    seg.put(saveDirectory, s);
+	}
+	s.add(simulationNumber + file.getName(), simulationNumber, file);
+    }
+
+    /** Closes all archives.
+     *
+     * @exception IOException if an I/O error occurs
+     */
+    public synchronized void close()
+	throws IOException{
+	IOException exc = null;
+	for (Segment s : seg.values()){
+	    try{
+		s.close();
+	    }
+	    catch(IOException e){
+		if ( exc == null )
+		    exc = e;
+	    }
+	}
+	seg.clear();
+	if ( hoo != null && Thread.currentThread() != hoo ){
+	    try{
+		Runtime.getRuntime().removeShutdownHook(hoo);
+	    }
+	    catch(IllegalStateException | SecurityException e){} // the virtual machine is shutting down
+	    hoo = null;
+	}
+	if ( exc != null )
+	    throw exc;
+    }
+
+    /** Extracts files from the archives of a save directory.
+     *
+     * @param saveDirectory the save directory
+     * @param simulationNumber the number of the simulation, or <CODE>0</CODE> 
+     *        to extract the files of all simulations
+     * @param targetDirectory the directory to which the files are written
+     * @return the number of files that were extracted
+     * @exception IOException if an I/O error occurs
+     */
+    public static int extract(String saveDirectory, int simulationNumber, String targetDirectory)
+	throws IOException{
+	// read the index, and group the entries by archive
+	final Map<String, List<String>> ent = new HashMap<String, List<String>>();
+	final BufferedReader r = new BufferedReader(new FileReader(new File(saveDirectory, INDEX_FILE_NAME)));
+	try{
+	    String lin;
+	    while( (lin = r.readLine()) != null ){
+		final StringTokenizer st = new StringTokenizer(lin, "\t");
+		if ( lin.startsWith("#") || st.countTokens() != 3 )
+		    continue;
+		final int simNum = Integer.parseInt(st.nextToken());
+		final String arc = st.nextToken();
+		final String nam = st.nextToken();
+		if ( simulationNumber == 0 || simNum == simulationNumber ){
+		    List<String> l = ent.get(arc);
+		    if ( l == null ){
+			l = new ArrayList<String>();
+			ent.put(arc, l);
+		    }
+		    l.add(nam);
+		}
+	    }
+	}
+	finally{
+	    r.close();
+	}
+	new File(targetDirectory).mkdirs();
+	int n = 0;
+	for (Map.Entry<String, List<String>> e : ent.entrySet()){
+	    final ZipFile zf = new ZipFile(new File(saveDirectory, e.getKey()));
+	    try{
+		for (String nam : e.getValue()){
+		    final ZipEntry ze = zf.getEntry(nam);
+		    if ( ze == null )
+			throw new IOException("Entry '" + nam + "' not found in '" + e.getKey() + "'.");
+		    final InputStream is = zf.getInputStream(ze);
+		    try{
+			Files.copy(is, new File(targetDirectory, nam).toPath(),
+				   StandardCopyOption.REPLACE_EXISTING);
+		    }
+		    finally{
+			is.close();
+		    }
+		    n++;
+		}
+	    }
+	    finally{
+		zf.close();
+	    }
+	}
+	return n;
+    }
+
+    /** Extracts the files of a simulation from the archives.
+     *
+     * @param args the save directory, optionally followed by the number of the simulation
+     *        (all simulations if omitted or <CODE>0</CODE>) and by the target directory
+     *        (current directory if omitted)
+     */
+    public static void main(String[] args){
+	if ( args.length < 1 || args.length > 3 ){
+	    System.err.println("Usage: java -classpath genopt.jar genopt.io.SaveArchive " +
+			       "saveDirectory [simulationNumber [targetDirectory]]");
+	    System.exit(1);
+	}
+	try{
+	    final int simNum = ( args.length > 1 ) ? Integer.parseInt(args[1]) : 0;
+	    final String tar = ( args.length > 2 ) ? args[2] : ".";
+	    final int n = extract(args[0], simNum, tar);
+	    System.out.println("Extracted " + n + ( n == 1 ? " file." : " files."));
+	}
+	catch(NumberFormatException e){
+	    System.err.println("Invalid simulation number '" + args[1] + "'.");
+	    System.exit(1);
+	}
+	catch(IOException e){
+	    System.err.println(e.getMessage());
+	    System.exit(1);
+	}
+    }
+
+    /** An archive that is being written.
+     */
+    private static class Segment
+    {
+	/** Constructor.
+	 *
+	 * @param saveDirectory the save directory
+	 * @param segmentNumber the number of the archive
+	 * @exception IOException if an I/O error occurs
+	 */
+	Segment(String saveDirectory, int segmentNumber)
+	    throws IOException{
+	    directory = saveDirectory;
+	    number = segmentNumber;
+	    name = ARCHIVE_PREFIX + number + ARCHIVE_SUFFIX;
+	    size = 0;
+	    entries = new ArrayList<String>();
+	    zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(new File(saveDirectory, name))));
+	}
+
+	/** Appends a file.
+	 *
+	 * @param entryName the name of the entry
+	 * @param simulationNumber the number of the simulation
+	 * @param file the file
+	 * @exception IOException if an I/O error occurs
+	 */
+	void add(String entryName, int simulationNumber, File file)
+	    throws IOException{
+	    // the file is kept in the save directory until the archive can be read
+	    final File f = new File(directory, entryName);
+	    Files.move(file.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	    final ZipEntry ze = new ZipEntry(entryName);
+	    ze.setTime(f.lastModified());
+	    zip.putNextEntry(ze);
+	    size += Files.copy(f.toPath(), zip);
+	    zip.closeEntry();
+	    entries.add(simulationNumber + "\t" + name + "\t" + entryName);
+	}
+
+	/** Closes the archive, adds its entries to the index, and deletes
+	 *  the files that are in the archive from the save directory.
+	 *
+	 * @exception IOException if an I/O error occurs
+	 */
+	void close()
+	    throws IOException{
+	    zip.close();
+	    final File indFil = new File(directory, INDEX_FILE_NAME);
+	    final boolean newInd = !indFil.exists();
+	    final BufferedWriter index = new BufferedWriter(new FileWriter(indFil, true));
+	    try{
+		if ( newInd ){
+		    index.write("# simulation number\tarchive\tentry");
+		    index.newLine();
+		}
+		for (String lin : entries){
+		    index.write(lin);
+		    index.newLine();
+		}
+	    }
+	    finally{
+		index.close();
+	    }
+	    for (String lin : entries)
+		new File(directory, lin.substring(lin.lastIndexOf('\t') + 1)).delete();
+	    entries.clear();
+	}
+
+	/** The save directory */
+	final String directory;
+	/** The number of the archive */
+	final int number;
+	/** The file name of the archive */
+	final String name;
+	/** The number of bytes that have been added */
+	long size;
+	/** The lines of the index for the entries that have been added */
+	final List<String> entries;
+	/** The stream of the archive */
+	final ZipOutputStream zip;
+    }
+
+    /** Number of uncompressed bytes after which a new archive is started */
+    public final static long MAX_SEGMENT_SIZE = 1L << 30;
+    /** Number of entries after which a new archive is started */
+    public final static int MAX_SEGMENT_ENTRIES = 1000;
+    /** Prefix of the file names of the archives */
+    public final static String ARCHIVE_PREFIX = "GenOpt-archive-";
+    /** Suffix of the file names of the archives */
+    public final static String ARCHIVE_SUFFIX = ".zip";
+    /** Name of the index file */
+    public final static String INDEX_FILE_NAME = "GenOpt-archive-index.txt";
+
+    /** The archives that are being written, for each save directory */
+    private Map<String, Segment> seg;
+    /** The shutdown hook that closes the archives, or <CODE>null</CODE> */
+    private Thread hoo;
+}
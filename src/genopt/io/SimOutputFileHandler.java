@@ -222,31 +222,27 @@ public class SimOutputFileHandler
 	    throws OptimizerException, IOException
 	{
 	    String lastFoundLine = null;
-	    final FileReader filRea = new FileReader(new File(filNam));
-	    final BufferedReader reader = new BufferedReader(filRea);
-	    String curLin = reader.readLine();
-	    while (curLin != null){
-		// read file from top to bottom, saving the line that could contain the 
-		// last objective function value
-	        curLin = cutEndSpaceAndTab(curLin);
-	        if (curLin.length() > 0){ 
-		    // We found a line with something else than only spaces and tabs.
-		    // Save it, because it may not be the last objective function value
-		    lastFoundLine = curLin;
-	        }
-		curLin = reader.readLine();
+	    try(ReverseLineReader reader = new ReverseLineReader(new File(filNam))){
+		String curLin = reader.readLine();
+		while (curLin != null){
+		    // read file from bottom to top, until we find the line that contains the 
+		    // last objective function value
+		    curLin = cutEndSpaceAndTab(curLin);
+		    if (curLin.length() > 0){ 
+			// We found a line with something else than only spaces and tabs.
+			lastFoundLine = curLin;
+			break;
+		    }
+		    curLin = reader.readLine();
+		}
 	    }
 	    // We found a line with the delimiter.
 	    if (lastFoundLine != null){
-		reader.close();
-		filRea.close();
 		return (delimiter.length() == 0) ?
 		    getFirstDouble(lastFoundLine) : 
 		    getDoubleAfterLastSpace(lastFoundLine);
 	    }
 	    // We did not find any line with the delimiter
-	    reader.close();
-	    filRea.close();
 	    throwObjectiveFunctionValueNotFound();
 	    return 999; // to satisfy compiler	    
 	}
@@ -261,33 +257,32 @@ public class SimOutputFileHandler
     	private double getObjectiveFunctionValueNonEmpty() 
 	    throws OptimizerException, IOException
 	{
-	    int iLin = -1;
-	    int i = 1;
+	    // position of the line in the file, which is converted to a line number for error messages
+	    long linSta = -1;
 	    String lastFoundLine = null;
-	    final FileReader filRea = new FileReader(new File(filNam));
-	    final BufferedReader reader = new BufferedReader(filRea);
-	    String curLin = reader.readLine();
-	    while (curLin != null){
-		if (firstCharAt > 0 && curLin.length() > firstCharAt){
-		    // User specified where the objective function delimiter starts.
-		    // We subtract 1 from firstCharAt because GenOpt is one-based, but 
-		    // Java is zero-based
-		    final String cl = curLin.substring(firstCharAt-1);
-		    final int begInd = cl.indexOf(delimiter);
-		    if (begInd == 0){  // The delimiter must be at position zero.
-			lastFoundLine = cl;
-			iLin = i;
+	    // read file from bottom to top, until we find the last line with the delimiter
+	    try(ReverseLineReader reader = new ReverseLineReader(new File(filNam))){
+		String curLin = reader.readLine();
+		while (curLin != null && lastFoundLine == null){
+		    if (firstCharAt > 0 && curLin.length() > firstCharAt){
+			// User specified where the objective function delimiter starts.
+			// We subtract 1 from firstCharAt because GenOpt is one-based, but 
+			// Java is zero-based
+			final String cl = curLin.substring(firstCharAt-1);
+			final int begInd = cl.indexOf(delimiter);
+			if (begInd == 0)  // The delimiter must be at position zero.
+			    lastFoundLine = cl;
 		    }
-		}
-		else if (firstCharAt < 1){
-		    final int begInd = curLin.lastIndexOf(delimiter);
-		    if (begInd != -1){  // we found a line with the delimiter
-			lastFoundLine = new String(curLin);
-			iLin = i;
+		    else if (firstCharAt < 1){
+			final int begInd = curLin.lastIndexOf(delimiter);
+			if (begInd != -1)  // we found a line with the delimiter
+			    lastFoundLine = new String(curLin);
 		    }
+		    if (lastFoundLine == null)
+			curLin = reader.readLine();
 		}
-		curLin = reader.readLine();
-		i++;
+		if ( lastFoundLine != null )
+		    linSta = reader.getLineStart();
 	    }
 	    // if lastFoundLine != null, then we found the line with the objective function value,
 	    // and we parse it.
@@ -303,7 +298,7 @@ public class SimOutputFileHandler
 		    {
 			String errMes = 
 			    "Error in the objective function value: " + LS + 
-			    "  Delimiter '" + delimiter + "' was found on line " + iLin +
+			    "  Delimiter '" + delimiter + "' was found on line " + getLineNumber(linSta) +
 			    " but no function value.";
 			throw new OptimizerException(errMes);
 		    }
@@ -313,7 +308,7 @@ public class SimOutputFileHandler
 			String errMes = 
 			    "Error in the objective function value:" + LS + 
 			    "  Delimiter '" + delimiter + "' was found at end of line " +
-			    iLin + " but no function value.";
+			    getLineNumber(linSta) + " but no function value.";
 			throw new OptimizerException(errMes);
 		    }
 		
@@ -325,18 +320,136 @@ public class SimOutputFileHandler
 		final int sepPos = getIndexOfSeparator(lastFoundLine);
 		if (sepPos != -1)
 		    lastFoundLine = new String(lastFoundLine.substring(0, sepPos));
-		reader.close();
-		filRea.close();
 		return parseToDouble(lastFoundLine);
 	    }
 	    // objective function value was not found in simulation output file
-	    reader.close();
-	    filRea.close();
 	    throwObjectiveFunctionValueNotFound();
 	    return 999; // to satisfy compiler
 	}
 
 
+	/** gets the one-based number of the line that starts at a position in the file
+	  * @param position the position of the first byte of the line
+	  * @return the line number
+	  * @exception IOException
+	 */	
+	private int getLineNumber(long position) throws IOException
+	{
+	    // count the line terminators '\n', '\r' and '\r\n' before the position
+	    int r = 1;
+	    int prev = -1;
+	    try(InputStream is = new BufferedInputStream(new FileInputStream(filNam))){
+		for (long i = 0; i < position; i++){
+		    final int b = is.read();
+		    if (b == '\n' && prev != '\r' || b == '\r')
+			r++;
+		    prev = b;
+		}
+	    }
+	    return r;
+	}
+
+	/** Reader that returns the lines of a file in reverse order, starting
+	  * with the last line.<BR>
+	  * The file is read in blocks from its end, so that only the end of the file is 
+	  * read if the objective function value is at the end of a large file.
+	  * The lines are terminated as by <CODE>BufferedReader.readLine()</CODE>.
+	 */	
+	private static class ReverseLineReader implements Closeable
+	{
+	    /** Constructor.
+	      * @param file the file
+	      * @exception IOException
+	     */	
+	    ReverseLineReader(File file) throws IOException
+	    {
+		raf = new RandomAccessFile(file, "r");
+		cur = raf.length();
+		linSta = cur;
+		buf = new byte[BLOCK_SIZE];
+		bufOff = cur;
+		bufLen = 0;
+	    }
+
+	    /** reads the line that precedes the line that has been read last
+	      * @return the line, without the line terminator, or <CODE>null</CODE>
+	      *         if the first line has already been read
+	      * @exception IOException
+	     */	
+	    String readLine() throws IOException
+	    {
+		if (cur == 0)
+		    return null;
+		// skip the line terminator
+		if (byteAt(cur-1) == '\n'){
+		    cur--;
+		    if (cur > 0 && byteAt(cur-1) == '\r')
+			cur--;
+		}
+		else if (byteAt(cur-1) == '\r')
+		    cur--;
+		final long linEnd = cur;
+		while (cur > 0 && !FileHandler.isEndOfLine(byteAt(cur-1)))
+		    cur--;
+		linSta = cur;
+		final int len = (int)(linEnd - linSta);
+		if (linSta >= bufOff && linEnd <= bufOff + bufLen) // the line is in the buffer
+		    return new String(buf, (int)(linSta - bufOff), len);
+		final byte[] b = new byte[len];
+		raf.seek(linSta);
+		raf.readFully(b);
+		return new String(b);
+	    }
+
+	    /** gets the position of the first byte of the line that has been read last
+	      * @return the position in the file
+	     */	
+	    long getLineStart()
+	    {
+		return linSta;
+	    }
+
+	    /** gets a byte of the file, and reads the block that ends with this byte 
+	      * if the byte is not in the buffer
+	      * @param position the position in the file
+	      * @return the byte
+	      * @exception IOException
+	     */	
+	    private int byteAt(long position) throws IOException
+	    {
+		if (position < bufOff || position >= bufOff + bufLen){
+		    bufOff = Math.max(0, position + 1 - BLOCK_SIZE);
+		    bufLen = (int)(position + 1 - bufOff);
+		    raf.seek(bufOff);
+		    raf.readFully(buf, 0, bufLen);
+		}
+		return buf[(int)(position - bufOff)];
+	    }
+
+	    /** closes the file
+	      * @exception IOException
+	     */	
+	    public void close() throws IOException
+	    {
+		raf.close();
+	    }
+
+	    /** size of the blocks that are read from the file */
+	    private final static int BLOCK_SIZE = 65536;
+	    /** the file */
+	    private final RandomAccessFile raf;
+	    /** position after the line terminator of the line that will be read next */
+	    private long cur;
+	    /** position of the first byte of the line that has been read last */
+	    private long linSta;
+	    /** the block that has been read last */
+	    private final byte[] buf;
+	    /** position of the block in the file */
+	    private long bufOff;
+	    /** number of bytes in the block */
+	    private int bufLen;
+	}
+
 	/** Throws an <CODE>OptimizerException</CODE> with the error message
 	  * that the objective function value could not be found.
 	  * @exception OptimizerException
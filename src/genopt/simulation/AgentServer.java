@@ -0,0 +1,570 @@
+package genopt.simulation;
+
+import genopt.lang.OptimizerException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Object that waits for {@link SimulationAgent}s to connect, and runs
+  * simulations on them.
+  *
+  * Agents can connect and disconnect at any time during the optimization.
+  * Each agent provides a number of slots, which are added to the number of
+  * simulations that the {@link SimulationExecutor} runs in parallel.
+  * If the connection to an agent is lost, then its simulations fail with an
+  * {@link AgentLostException}, and they can be run again on another agent or on
+  * this computer.
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+public class AgentServer
+{
+    /** Constructor. Starts to wait for agents.
+     *
+     * Only agents that send <CODE>token</CODE> when they connect are accepted.
+     *
+     * @param port the port on which GenOpt waits for agents
+     * @param address the address of the network interface on which GenOpt waits for agents,
+     *        or an empty string to wait on all interfaces
+     * @param token the token that the agents must send
+     * @param simulationExecutor the simulation executor, whose number of threads 
+     *        is adjusted when agents connect or disconnect
+     * @param optIniPath the directory of the optimization initialization file
+     * @param staticFiles the canonical path names of the static files, which are sent to 
+     *        each agent when it connects
+     * @exception OptimizerException if GenOpt cannot wait for agents on the port
+     */
+    public AgentServer(int port, String address, String token,
+		       SimulationExecutor simulationExecutor, String optIniPath,
+		       String[] staticFiles)
+	throws OptimizerException{
+	assert token.length() > 0 : "token must not be empty";
+	tok = token.getBytes(StandardCharsets.UTF_8);
+	simExe = simulationExecutor;
+	staFil = staticFiles.clone();
+	staNam = new String[staFil.length];
+	final String FS = File.separator;
+	final String iniPat = optIniPath.endsWith(FS) ? optIniPath : optIniPath + FS;
+	for (int i = 0; i < staFil.length; i++)
+	    staNam[i] = staFil[i].substring(iniPat.length()).replace(File.separatorChar, '/');
+	agents = new ArrayList<Agent>();
+	nexId = new AtomicLong(0);
+	closed = false;
+	try{
+	    serSoc = new ServerSocket(port, 0, 
+				      ( address.length() > 0 ) ? InetAddress.getByName(address) : null);
+	}
+	catch(IOException | SecurityException e){
+	    throw new OptimizerException("Cannot wait for simulation agents on " +
+					 ( ( address.length() > 0 ) ? address + ":" : "port ") + port +
+					 ": " + e.getMessage());
+	}
+	final Thread t = new Thread("GenOpt-agent-server"){
+		public void run(){
+		    try{
+			while( true )
+			    new Agent(serSoc.accept()).start();
+		    }
+		    catch(IOException e){} // the server socket has been closed
+		}
+	    };
+	t.setDaemon(true);
+	t.start();
+    }
+
+    /** Gets the port on which GenOpt waits for agents.
+     *
+     * @return the port
+     */
+    public int getPort(){
+	return serSoc.getLocalPort();
+    }
+
+    /** Gets the number of slots of all agents that are connected.
+     *
+     * @return the number of slots
+     */
+    public synchronized int getNumberOfSlots(){
+	int r = 0;
+	for (Agent a : agents)
+	    r += a.nSlo;
+	return r;
+    }
+
+    /** Acquires a free slot on the agent that has the most free slots.
+     *
+     * @return the agent, or <CODE>null</CODE> if no agent has a free slot
+     */
+    synchronized Agent tryAcquire(){
+	Agent r = null;
+	for (Agent a : agents){
+	    if ( a.nFre > 0 && ( r == null || a.nFre > r.nFre ) )
+		r = a;
+	}
+	if ( r != null )
+	    r.nFre--;
+	return r;
+    }
+
+    /** Releases a slot of an agent.
+     *
+     * @param agent the agent
+     */
+    synchronized void release(Agent agent){
+	agent.nFre++;
+    }
+
+    /** Runs a simulation on an agent and waits for its result.
+     *
+     * @param agent the agent, which must have been acquired
+     * @param job the simulation
+     * @return the result
+     * @exception AgentLostException if the connection to the agent has been lost
+     * @exception OptimizerException if the simulations have been stopped
+     * @exception InterruptedException if the thread is interrupted, in which case the
+     *            simulation is stopped
+     */
+    Result run(final Agent agent, final Job job)
+	throws AgentLostException, OptimizerException, InterruptedException{
+	final long id = nexId.incrementAndGet();
+	final CompletableFuture<Result> f = new CompletableFuture<Result>();
+	agent.pen.put(id, f);
+	// the pending simulations of a lost agent are failed after the flag has been set
+	if ( agent.lost ){
+	    agent.pen.remove(id);
+	    throw new AgentLostException(agent.hos);
+	}
+	try{
+	    agent.send(id, job);
+	}
+	catch(IOException e){
+	    agent.pen.remove(id);
+	    agent.close();
+	    throw new AgentLostException(agent.hos);
+	}
+	try{
+	    return f.get();
+	}
+	catch(ExecutionException e){
+	    final Throwable t = e.getCause();
+	    if ( t instanceof AgentLostException )
+		throw (AgentLostException)t;
+	    throw new OptimizerException(t.getMessage());
+	}
+	catch(InterruptedException e){
+	    agent.pen.remove(id);
+	    agent.cancel(id);
+	    throw e;
+	}
+    }
+
+    /** Stops all simulations that run on agents.
+     */
+    public void cancelAll(){
+	for (Agent a : _getAgents()){
+	    for (Long id : a.pen.keySet()){
+		final CompletableFuture<Result> f = a.pen.remove(id);
+		if ( f != null ){
+		    a.cancel(id);
+		    f.completeExceptionally(new OptimizerException(genopt.GenOpt.USER_STOP_MESSAGE));
+		}
+	    }
+	}
+    }
+
+    /** Stops waiting for agents and closes the connections to all agents,
+     *  which then stop their simulations and terminate.
+     */
+    public void close(){
+	synchronized(this){
+	    closed = true;
+	}
+	try{
+	    serSoc.close();
+	}
+	catch(IOException e){}
+	for (Agent a : _getAgents())
+	    a.close();
+    }
+
+    /** Gets the agents that are connected.
+     *
+     * @return a copy of the list of agents
+     */
+    private synchronized Agent[] _getAgents(){
+	return agents.toArray(new Agent[agents.size()]);
+    }
+
+    /** Adds an agent whose connection has been established.
+     *
+     * @param a the agent
+     * @return <CODE>false</CODE> if the server has been closed
+     */
+    private boolean _add(final Agent a){
+	synchronized(this){
+	    if ( closed )
+		return false;
+	    agents.add(a);
+	}
+	simExe.setNumberOfRemoteSlots(getNumberOfSlots());
+	return true;
+    }
+
+    /** Removes an agent whose connection has been lost or closed.
+     *
+     * @param a the agent
+     */
+    private void _remove(final Agent a){
+	synchronized(this){
+	    if ( !agents.remove(a) || closed )
+		return;
+	}
+	simExe.setNumberOfRemoteSlots(getNumberOfSlots());
+    }
+
+    /** The connection to an agent. Its thread reads the messages of the agent.
+      */
+    class Agent extends Thread
+    {
+	/** Constructor.
+	 *
+	 * @param socket the socket of the connection
+	 */
+	Agent(final Socket socket){
+	    super("GenOpt-agent-connection");
+	    setDaemon(true);
+	    soc = socket;
+	    hos = socket.getInetAddress().getHostName();
+	    pen = new ConcurrentHashMap<Long, CompletableFuture<Result>>();
+	    lost = false;
+	}
+
+	/** Establishes the connection and reads the results of the simulations,
+	 *  until the connection is lost or closed.
+	 */
+	public void run(){
+	    boolean added = false;
+	    try{
+		soc.setTcpNoDelay(true);
+		// an agent that does not send a message for this time is no longer reachable
+		soc.setSoTimeout((int)(PING_TIMEOUT_FACTOR * SimulationAgent.PING_INTERVAL));
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(soc.getInputStream()));
+		out = new DataOutputStream(new BufferedOutputStream(soc.getOutputStream()));
+		if ( in.readInt() != SimulationAgent.MAGIC || in.readInt() != SimulationAgent.VERSION )
+		    throw new IOException("Connection is not from a GenOpt simulation agent of the same version.");
+		// the length is limited as the connection is not authenticated yet
+		final int nTok = in.readInt();
+		if ( nTok < 0 || nTok > SimulationAgent.MAX_TOKEN_LENGTH )
+		    throw new IOException("Agent sent a wrong token.");
+		final byte[] agTok = new byte[nTok];
+		in.readFully(agTok);
+		// compare in constant time so that the token cannot be guessed from the response time
+		if ( !MessageDigest.isEqual(agTok, tok) )
+		    throw new IOException("Agent sent a wrong token.");
+		nSlo = in.readInt();
+		hos = SimulationAgent.readString(in);
+		if ( nSlo < 1 )
+		    throw new IOException("Agent has no slots.");
+		nFre = nSlo;
+		synchronized(out){
+		    out.writeInt(SimulationAgent.STATIC);
+		    SimulationAgent.writeStrings(out, staNam);
+		    for (int i = 0; i < staFil.length; i++)
+			SimulationAgent.writeBytes(out, Files.readAllBytes(new File(staFil[i]).toPath()));
+		    out.flush();
+		}
+		added = _add(this);
+		while( added ){
+		    final int typ = in.readInt();
+		    if ( typ == SimulationAgent.PING )
+			continue;
+		    if ( typ != SimulationAgent.RESULT )
+			throw new IOException("Received unknown message " + typ + ".");
+		    final long id = in.readLong();
+		    final int sta = in.readInt();
+		    final int ev = in.readInt();
+		    final double dur = in.readDouble();
+		    final String mes = SimulationAgent.readString(in);
+		    final byte[][] fil = new byte[in.readInt()][];
+		    for (int i = 0; i < fil.length; i++)
+			fil[i] = SimulationAgent.readBytes(in);
+		    final CompletableFuture<Result> f = pen.remove(id);
+		    if ( f != null )
+			f.complete(new Result(hos, sta, ev, dur, mes, fil));
+		}
+	    }
+	    catch(IOException e){} // the connection has been lost or closed
+	    finally{
+		lost = true;
+		if ( added )
+		    _remove(this);
+		close();
+		for (Long id : pen.keySet()){
+		    final CompletableFuture<Result> f = pen.remove(id);
+		    if ( f != null )
+			f.completeExceptionally(new AgentLostException(hos));
+		}
+	    }
+	}
+
+	/** Sends a simulation to the agent.
+	 *
+	 * @param id the identifier of the simulation
+	 * @param job the simulation
+	 * @exception IOException if an I/O error occurs
+	 */
+	void send(final long id, final Job job)
+	    throws IOException{
+	    final String[] envNam = job.env.keySet().toArray(new String[job.env.size()]);
+	    final String[] envVal = new String[envNam.length];
+	    for (int i = 0; i < envNam.length; i++)
+		envVal[i] = job.env.get(envNam[i]);
+	    synchronized(out){
+		out.writeInt(SimulationAgent.JOB);
+		out.writeLong(id);
+		out.writeDouble(job.timeout);
+		SimulationAgent.writeString(out, job.proDir);
+		SimulationAgent.writeStrings(out, job.com);
+		SimulationAgent.writeStrings(out, envNam);
+		SimulationAgent.writeStrings(out, envVal);
+		SimulationAgent.writeString(out, job.stdOut);
+		SimulationAgent.writeStrings(out, job.inpNam);
+		for (int i = 0; i < job.inpCon.length; i++)
+		    SimulationAgent.writeBytes(out, job.inpCon[i]);
+		SimulationAgent.writeStrings(out, job.resNam);
+		out.flush();
+	    }
+	}
+
+	/** Stops a simulation on the agent.
+	 *
+	 * @param id the identifier of the simulation
+	 */
+	void cancel(final long id){
+	    try{
+		synchronized(out){
+		    out.writeInt(SimulationAgent.CANCEL);
+		    out.writeLong(id);
+		    out.flush();
+		}
+	    }
+	    catch(IOException e){} // the agent stops its simulations if the connection is lost
+	}
+
+	/** Closes the connection.
+	 */
+	void close(){
+	    try{
+		soc.close();
+	    }
+	    catch(IOException e){}
+	}
+
+	/** The socket of the connection */
+	final Socket soc;
+	/** The stream to the agent */
+	DataOutputStream out;
+	/** The name of the host of the agent */
+	String hos;
+	/** The number of slots of the agent */
+	int nSlo;
+	/** The number of free slots of the agent */
+	int nFre;
+	/** The simulations that run on the agent, by their identifier */
+	final Map<Long, CompletableFuture<Result>> pen;
+	/** Flag, <CODE>true</CODE> if the connection has been lost or closed */
+	volatile boolean lost;
+    }
+
+    /** A simulation that is sent to an agent.
+      */
+    static class Job
+    {
+	/** Constructor.
+	 *
+	 * @param command the program and its arguments
+	 * @param directory the working directory of the process
+	 * @param environment the environment variables
+	 * @param standardOutput the file for the standard output, or an empty string
+	 * @param timeout the time limit in seconds, or <CODE>0</CODE>
+	 * @param inputNames the names of the simulation input files
+	 * @param inputContents the contents of the simulation input files
+	 * @param resultNames the names of the files that are sent back
+	 */
+	Job(String[] command, String directory, Map<String, String> environment, String standardOutput,
+	    double timeout, String[] inputNames, byte[][] inputContents, String[] resultNames){
+	    com = command;
+	    proDir = directory;
+	    env = environment;
+	    stdOut = standardOutput;
+	    this.timeout = timeout;
+	    inpNam = inputNames;
+	    inpCon = inputContents;
+	    resNam = resultNames;
+	}
+
+	/** The program and its arguments */
+	final String[] com;
+	/** The working directory of the process */
+	final String proDir;
+	/** The environment variables */
+	final Map<String, String> env;
+	/** The file for the standard output, or an empty string */
+	final String stdOut;
+	/** The time limit in seconds, or <CODE>0</CODE> */
+	final double timeout;
+	/** The names of the simulation input files, relative to the temporary directory */
+	final String[] inpNam;
+	/** The contents of the simulation input files */
+	final byte[][] inpCon;
+	/** The names of the files that are sent back, relative to the temporary directory */
+	final String[] resNam;
+    }
+
+    /** The result of a simulation that ran on an agent.
+      */
+    static class Result
+    {
+	/** Constructor.
+	 *
+	 * @param host the name of the host of the agent
+	 * @param status the status of the simulation
+	 * @param exitValue the exit value of the simulation program
+	 * @param duration the duration of the simulation in seconds
+	 * @param message the error stream of the simulation program, or the error message
+	 * @param files the contents of the files that are sent back, with <CODE>null</CODE>
+	 *        for files that do not exist
+	 */
+	Result(String host, int status, int exitValue, double duration, String message, byte[][] files){
+	    hos = host;
+	    sta = status;
+	    ev = exitValue;
+	    dur = duration;
+	    mes = message;
+	    fil = files;
+	}
+
+	/** The name of the host of the agent */
+	final String hos;
+	/** The status of the simulation */
+	final int sta;
+	/** The exit value of the simulation program */
+	final int ev;
+	/** The duration of the simulation in seconds */
+	final double dur;
+	/** The error stream of the simulation program, or the error message */
+	final String mes;
+	/** The contents of the files that are sent back */
+	final byte[][] fil;
+    }
+
+    /** Exception that is thrown if the connection to an agent has been lost
+     *  while it ran a simulation.
+      */
+    static class AgentLostException extends IOException
+    {
+	private static final long serialVersionUID = 1L;
+
+	/** Constructor.
+	 *
+	 * @param host the name of the host of the agent
+	 */
+	AgentLostException(String host){
+	    super("Lost the connection to the simulation agent on '" + host + "'.");
+	}
+    }
+
+    /** Number of ping intervals without a message after which an agent is considered lost */
+    private final static int PING_TIMEOUT_FACTOR = 6;
+
+    /** The simulation executor */
+    protected SimulationExecutor simExe;
+    /** The canonical path names of the static files */
+    protected String[] staFil;
+    /** The names of the static files, relative to the directory of the 
+	optimization initialization file */
+    protected String[] staNam;
+    /** The token that the agents must send */
+    private byte[] tok;
+    /** The server socket */
+    protected ServerSocket serSoc;
+    /** The agents that are connected */
+    private List<Agent> agents;
+    /** The identifier of the last simulation */
+    private AtomicLong nexId;
+    /** Flag, <CODE>true</CODE> if the server has been closed */
+    private boolean closed;
+}
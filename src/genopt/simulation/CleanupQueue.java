@@ -0,0 +1,184 @@
+package genopt.simulation;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/** Object that runs the clean-up tasks of the simulations in a background thread.
+  *
+  * After a simulation, its files are archived and its working directory
+  * is returned to the {@link WorkingDirectoryPool}. These tasks are queued
+  * so that the simulation thread can start the next simulation.
+  * The queue is bounded: if the clean-up falls behind, then
+  * submitting a task waits until the queue has space.
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+public class CleanupQueue
+{
+    /** Constructor.
+     *
+     * @param capacity the maximum number of tasks that are waiting
+     */
+    public CleanupQueue(int capacity){
+	assert capacity > 0 : "capacity must be bigger than 0";
+	que = new ArrayBlockingQueue<Runnable>(capacity);
+	closed = false;
+	thr = new Thread(new Runnable(){
+		public void run(){
+		    _runTasks();
+		}
+	    }, "GenOpt-cleanup");
+	thr.setDaemon(true);
+	thr.start();
+    }
+
+    /** Submits a task.
+     *
+     *  If the queue is full, then this method waits until the queue has space.
+     *  If the queue has been closed, then the task is run in the calling thread.
+     *
+     * @param task the task
+     * @exception InterruptedException if the current thread is interrupted while waiting
+     */
+    public void submit(Runnable task)
+	throws InterruptedException{
+	synchronized(this){
+	    if (!closed){
+		que.put(task);
+		return;
+	    }
+	}
+	task.run();
+    }
+
+    /** Runs the remaining tasks and stops the background thread.
+     *
+     *  This method waits until all submitted tasks completed.
+     */
+    public void close(){
+	boolean intr = false;
+	synchronized(this){
+	    if (closed)
+		return;
+	    closed = true;
+	    // the task that stops the thread is queued after all other tasks
+	    while(true){
+		try{
+		    que.put(STOP);
+		    break;
+		}
+		catch(InterruptedException e){
+		    intr = true;
+		}
+	    }
+	}
+	while(true){
+	    try{
+		thr.join();
+		break;
+	    }
+	    catch(InterruptedException e){
+		intr = true;
+	    }
+	}
+	if (intr)
+	    Thread.currentThread().interrupt();
+    }
+
+    /** Runs the tasks until the stop task is taken from the queue.
+     */
+    private void _runTasks(){
+	while(true){
+	    Runnable r;
+	    try{
+		r = que.take();
+	    }
+	    catch(InterruptedException e){
+		continue;
+	    }
+	    if ( r == STOP )
+		return;
+	    try{
+		r.run();
+	    }
+	    catch(RuntimeException e){
+		// tasks report their own errors, this is a program error
+		e.printStackTrace();
+	    }
+	}
+    }
+
+    /** Task that stops the background thread */
+    private final static Runnable STOP = new Runnable(){
+	    public void run(){}
+	};
+
+    /** The tasks that are waiting */
+    private BlockingQueue<Runnable> que;
+    /** The background thread */
+    private Thread thr;
+    /** Flag, <CODE>true</CODE> if no more tasks are queued */
+    private boolean closed;
+}
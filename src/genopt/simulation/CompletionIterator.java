@@ -0,0 +1,154 @@
+package genopt.simulation;
+
+import genopt.algorithm.util.math.Point;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
+
+/** Object that returns evaluated points in the order in which their
+  * evaluations complete.
+  *
+  * This object is used by algorithms that process each evaluated point as soon
+  * as it is available, rather than waiting for the slowest simulation of a
+  * batch. Typical use is
+  * <PRE>
+  * CompletionIterator it = submitAll(x);
+  * while ( it.hasNext() ){
+  *     Point p = it.next();
+  *     ...
+  * }
+  * </PRE>
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+
+public class CompletionIterator
+{
+    /** Constructor.
+     *
+     * @param futures the futures of the points that are evaluated
+     */
+    public CompletionIterator(final List<CompletableFuture<Point>> futures){
+	nRem = futures.size();
+	queue = new LinkedBlockingQueue<CompletableFuture<Point>>();
+	for(final CompletableFuture<Point> f : futures){
+	    f.whenComplete(new BiConsumer<Point, Throwable>(){
+		    public void accept(Point p, Throwable t){
+			queue.add(f);
+		    }
+		});
+	}
+    }
+
+    /** Returns <CODE>true</CODE> if not all points have been returned.
+     *
+     * @return <CODE>true</CODE> if not all points have been returned
+     */
+    public boolean hasNext(){
+	return nRem > 0;
+    }
+
+    /** Gets the number of points that have not yet been returned.
+     *
+     * @return the number of points that have not yet been returned
+     */
+    public int getNumberOfRemainingPoints(){
+	return nRem;
+    }
+
+    /** Waits until the next evaluation completes and returns its point.
+     *
+     * @return a clone of the evaluated point with its function values stored
+     * @exception InterruptedException if the current thread is interrupted while waiting
+     * @exception Exception if the evaluation of the point threw an exception
+     */
+    public Point next()
+	throws InterruptedException, Exception{
+	if (nRem == 0)
+	    throw new NoSuchElementException("All points have been returned.");
+	final CompletableFuture<Point> f = queue.take();
+	nRem--;
+	try{
+	    return f.get();
+	}
+	catch(ExecutionException e){
+	    final Throwable t = e.getCause();
+	    if (t instanceof Exception)
+		throw (Exception)t;
+	    if (t instanceof Error)
+		throw (Error)t;
+	    throw e;
+	}
+    }
+
+    /** The number of points that have not yet been returned */
+    private int nRem;
+    /** The futures of the points whose evaluation completed */
+    private final BlockingQueue<CompletableFuture<Point>> queue;
+}
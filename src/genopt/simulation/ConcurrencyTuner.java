@@ -0,0 +1,291 @@
+package genopt.simulation;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.StringTokenizer;
+
+/** Object that adjusts the number of simulations that run in parallel.
+  *
+  * The tuner measures the number of simulations that are completed
+  * per minute. After each measurement window, it changes the number of
+  * process slots by one. If the throughput increased, then the
+  * change is continued in the same direction, otherwise the direction
+  * is reversed. If the load average or the memory usage, as reported
+  * by <CODE>/proc</CODE>, indicate that the computer is overloaded,
+  * then the number of slots is reduced.
+  * On systems without <CODE>/proc</CODE>, only the throughput is used.
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+public class ConcurrencyTuner
+{
+    /** Constructor.
+     *
+     * @param processSlots the process slots whose size is adjusted
+     * @param maximumSlots the maximum number of process slots
+     */
+    public ConcurrencyTuner(ProcessSlots processSlots, int maximumSlots){
+	assert maximumSlots > 0 : "maximumSlots must be bigger than 0";
+	proSlo = processSlots;
+	maxSlo = maximumSlots;
+	nCor = Runtime.getRuntime().availableProcessors();
+	dir = 1;
+	thrPre = -1;
+	nDon = 0;
+	nPen = 0;
+	busTim = 0;
+	t0 = -1;
+    }
+
+    /** Gets the default maximum number of process slots.
+     *
+     * @return twice the number of processors
+     */
+    public static int getMaximumNumberOfSlots(){
+	return MAX_SLOTS_PER_CORE * Runtime.getRuntime().availableProcessors();
+    }
+
+    /** Gets the number of process slots that is used when the tuning starts.
+     *
+     * @param maximumSlots the maximum number of process slots
+     * @return the number of processors, but not more than <CODE>maximumSlots</CODE>
+     */
+    public static int getInitialNumberOfSlots(int maximumSlots){
+	final int n = Runtime.getRuntime().availableProcessors();
+	return ( n < maximumSlots ) ? n : maximumSlots;
+    }
+
+    /** Informs the tuner that a simulation has been submitted.
+     *
+     *  The measurement window only advances while simulations are pending,
+     *  so that the time in which the optimization algorithm computes the
+     *  next points does not lower the throughput.
+     */
+    public synchronized void submitted(){
+	if ( nPen++ == 0 )
+	    t0 = System.nanoTime();
+    }
+
+    /** Informs the tuner that a simulation completed.
+     *
+     *  If the measurement window is complete, then the number of
+     *  process slots is adjusted.
+     */
+    public synchronized void completed(){
+	if ( nPen == 0 )
+	    return;
+	nDon++;
+	final long now = System.nanoTime();
+	busTim += now - t0;
+	t0 = now;
+	if ( --nPen == 0 )
+	    t0 = -1; // no simulation is pending, pause the measurement window
+	final int nSlo = proSlo.size();
+	final double dt = busTim * 1E-9;
+	if ( nDon < nSlo + MIN_COMPLETIONS || dt < MIN_WINDOW )
+	    return;
+	// completed simulations per minute
+	final double thr = 60. * nDon / dt;
+	if ( _isOverloaded() )
+	    dir = -1;
+	else if ( thrPre >= 0 && thr < thrPre * (1. + MIN_GAIN) )
+	    dir = -dir;
+	int n = nSlo + dir;
+	if ( n < 1 || n > maxSlo ){
+	    dir = -dir;
+	    n = nSlo + dir;
+	}
+	if ( n >= 1 && n <= maxSlo )
+	    proSlo.setSize(n);
+	thrPre = thr;
+	nDon = 0;
+	busTim = 0;
+    }
+
+    /** Checks whether the load average or the memory usage is too high.
+     *
+     * @return <CODE>true</CODE> if the computer is overloaded
+     */
+    private boolean _isOverloaded(){
+	final double loa = _readLoadAverage();
+	if ( loa > MAX_LOAD_PER_CORE * nCor )
+	    return true;
+	final double mem = _readAvailableMemoryFraction();
+	return ( mem >= 0 && mem < MIN_AVAILABLE_MEMORY );
+    }
+
+    /** Reads the load average of the last minute.
+     *
+     * @return the load average, or <CODE>-1</CODE> if it is not available
+     */
+    private static double _readLoadAverage(){
+	final String lin = _readFirstLine(new File("/proc/loadavg"));
+	if ( lin == null )
+	    return -1;
+	try{
+	    return Double.parseDouble(new StringTokenizer(lin).nextToken());
+	}
+	catch(RuntimeException e){
+	    return -1;
+	}
+    }
+
+    /** Reads the fraction of the memory that is available.
+     *
+     * @return the fraction of the memory that is available,
+     *         or <CODE>-1</CODE> if it is not known
+     */
+    private static double _readAvailableMemoryFraction(){
+	double tot = -1;
+	double ava = -1;
+	BufferedReader r = null;
+	try{
+	    r = new BufferedReader(new FileReader("/proc/meminfo"));
+	    String lin;
+	    while( (lin = r.readLine()) != null && (tot < 0 || ava < 0) ){
+		final StringTokenizer st = new StringTokenizer(lin);
+		if ( st.countTokens() < 2 )
+		    continue;
+		final String key = st.nextToken();
+		if ( key.equals("MemTotal:") )
+		    tot = Double.parseDouble(st.nextToken());
+		else if ( key.equals("MemAvailable:") )
+		    ava = Double.parseDouble(st.nextToken());
+	    }
+	}
+	catch(IOException | RuntimeException e){
+	    return -1;
+	}
+	finally{
+	    if ( r != null ){
+		try{ r.close(); }
+		catch(IOException e){}
+	    }
+	}
+	return ( tot > 0 && ava >= 0 ) ? ava / tot : -1;
+    }
+
+    /** Reads the first line of a file.
+     *
+     * @param file the file
+     * @return the first line, or <CODE>null</CODE> if the file cannot be read
+     */
+    private static String _readFirstLine(File file){
+	if ( !file.canRead() )
+	    return null;
+	BufferedReader r = null;
+	try{
+	    r = new BufferedReader(new FileReader(file));
+	    return r.readLine();
+	}
+	catch(IOException e){
+	    return null;
+	}
+	finally{
+	    if ( r != null ){
+		try{ r.close(); }
+		catch(IOException e){}
+	    }
+	}
+    }
+
+    /** Default maximum number of process slots per processor */
+    private final static int MAX_SLOTS_PER_CORE = 2;
+    /** Minimum duration of a measurement window, in seconds */
+    private final static double MIN_WINDOW = 10;
+    /** Number of completed simulations, in addition to the number of slots, 
+	that a measurement window must contain */
+    private final static int MIN_COMPLETIONS = 2;
+    /** Relative increase of the throughput that is required to continue 
+	in the same direction */
+    private final static double MIN_GAIN = 0.05;
+    /** Load average per processor above which the number of slots is reduced */
+    private final static double MAX_LOAD_PER_CORE = 1.5;
+    /** Fraction of available memory below which the number of slots is reduced */
+    private final static double MIN_AVAILABLE_MEMORY = 0.1;
+
+    /** The process slots */
+    protected ProcessSlots proSlo;
+    /** The maximum number of process slots */
+    protected int maxSlo;
+    /** The number of processors */
+    protected int nCor;
+    /** The direction of the last change, <CODE>+1</CODE> or <CODE>-1</CODE> */
+    private int dir;
+    /** The throughput of the previous window, or <CODE>-1</CODE> */
+    private double thrPre;
+    /** The number of simulations completed in the current window */
+    private int nDon;
+    /** The number of simulations that have been submitted but not completed */
+    private int nPen;
+    /** The time in nanoseconds in which simulations were pending in the current window,
+	up to <CODE>t0</CODE> */
+    private long busTim;
+    /** The time in nanoseconds up to which <CODE>busTim</CODE> has been accumulated, 
+	or <CODE>-1</CODE> if no simulation is pending */
+    private long t0;
+}
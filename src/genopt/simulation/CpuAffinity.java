@@ -0,0 +1,257 @@
+package genopt.simulation;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.TreeSet;
+
+/** Object that assigns a fixed set of processors to each process slot, and
+  * builds the command that starts a simulation on these processors.
+  *
+  * The slots are distributed over the NUMA nodes in turn, so that the simulations
+  * that run in parallel use all nodes, and the processors of a node are divided
+  * among the slots of this node. The simulation is started by a wrapper, such as
+  * <PRE>
+  *   taskset -c %GenOpt.Slot.Cores%
+  *   numactl --physcpubind=%GenOpt.Slot.Cores% --membind=%GenOpt.Slot.Node%
+  * </PRE>
+  * in which <CODE>%GenOpt.Slot.Cores%</CODE> is replaced by the comma separated
+  * list of processors of the slot, <CODE>%GenOpt.Slot.Node%</CODE> by its NUMA node, and
+  * <CODE>%GenOpt.Slot.Number%</CODE> by the number of the slot, starting at 1.
+  * The processors and nodes are read from <CODE>/sys/devices/system/node</CODE>.
+  * If this directory does not exist, as on systems other than Linux, all
+  * processors are assumed to be on node 0.
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+public class CpuAffinity
+{
+    /** Constructor.
+     *
+     * @param wrapper the command that starts the simulation program, with placeholders
+     * @param numberOfSlots the maximum number of process slots
+     */
+    public CpuAffinity(String wrapper, int numberOfSlots){
+	assert numberOfSlots > 0 : "numberOfSlots must be bigger than 0";
+	wra = wrapper;
+	nSlo = numberOfSlots;
+	nodCpu = readNodes();
+    }
+
+    /** Gets the wrapper for a process slot, with its placeholders replaced.
+     *
+     * @param iSlo the index of the slot, starting at 0
+     * @return the program and the arguments of the wrapper
+     */
+    public String[] getWrapper(int iSlo){
+	String s = SimulationStarter.replaceString(wra, "%GenOpt.Slot.Cores%", getCores(iSlo));
+	s = SimulationStarter.replaceString(s, "%GenOpt.Slot.Node%", String.valueOf(getNode(iSlo)));
+	s = SimulationStarter.replaceString(s, "%GenOpt.Slot.Number%", String.valueOf(iSlo+1));
+	final StringTokenizer st = new StringTokenizer(s);
+	final String[] r = new String[st.countTokens()];
+	for (int i = 0; i < r.length; i++)
+	    r[i] = st.nextToken();
+	return r;
+    }
+
+    /** Gets the NUMA node of a process slot.
+     *
+     * @param iSlo the index of the slot, starting at 0
+     * @return the number of the node
+     */
+    public int getNode(int iSlo){
+	return nodCpu[iSlo % nodCpu.length][0];
+    }
+
+    /** Gets the processors of a process slot.
+     *
+     * If there are more slots on a node than processors, then several slots
+     * share a processor.
+     *
+     * @param iSlo the index of the slot, starting at 0
+     * @return the comma separated list of processors
+     */
+    public String getCores(int iSlo){
+	final int nNod = nodCpu.length;
+	final int iNod = iSlo % nNod;
+	// the processors of the node, without the number of the node at index 0
+	final int nCpu = nodCpu[iNod].length - 1;
+	final int nSloNod = Math.max(1, ( nSlo - iNod + nNod - 1 ) / nNod);
+	final int cpuPerSlo = Math.max(1, nCpu / nSloNod);
+	final int iFir = ( iSlo / nNod ) * cpuPerSlo;
+	String r = "";
+	for (int j = 0; j < cpuPerSlo; j++)
+	    r += ( j == 0 ? "" : "," ) + nodCpu[iNod][1 + (iFir + j) % nCpu];
+	return r;
+    }
+
+    /** Reads the NUMA nodes and their processors that this process may use.
+     *
+     * @return for each node with at least one processor, the number of the node
+     *         followed by the numbers of its processors
+     */
+    static int[][] readNodes(){
+	final int[] all = _readAllowedCpus();
+	final List<int[]> r = new ArrayList<int[]>();
+	final File[] nod = new File(NODE_DIRECTORY).listFiles();
+	if ( nod != null ){
+	    Arrays.sort(nod);
+	    for (int i = 0; i < nod.length; i++){
+		final String nam = nod[i].getName();
+		if ( !nam.matches("node[0-9]+") )
+		    continue;
+		try{
+		    final int[] cpu = parseCpuList(new String(Files.readAllBytes(new File(nod[i], "cpulist").toPath())));
+		    final List<Integer> use = new ArrayList<Integer>();
+		    use.add(Integer.parseInt(nam.substring(4)));
+		    for (int j = 0; j < cpu.length; j++){
+			if ( all == null || Arrays.binarySearch(all, cpu[j]) >= 0 )
+			    use.add(cpu[j]);
+		    }
+		    if ( use.size() > 1 )
+			r.add(_toArray(use));
+		}
+		catch(IOException | NumberFormatException e){} // node cannot be used
+	    }
+	}
+	if ( r.isEmpty() ){
+	    // assume a single node
+	    final List<Integer> use = new ArrayList<Integer>();
+	    use.add(0);
+	    if ( all != null ){
+		for (int j = 0; j < all.length; j++)
+		    use.add(all[j]);
+	    }
+	    else{
+		for (int j = 0; j < Runtime.getRuntime().availableProcessors(); j++)
+		    use.add(j);
+	    }
+	    r.add(_toArray(use));
+	}
+	return r.toArray(new int[r.size()][]);
+    }
+
+    /** Reads the processors that this process may use.
+     *
+     * @return the sorted numbers of the processors, or <CODE>null</CODE> if they are unknown
+     */
+    private static int[] _readAllowedCpus(){
+	try(BufferedReader br = new BufferedReader(new FileReader("/proc/self/status"))){
+	    String lin;
+	    while( ( lin = br.readLine() ) != null ){
+		if ( lin.startsWith("Cpus_allowed_list:") )
+		    return parseCpuList(lin.substring("Cpus_allowed_list:".length()));
+	    }
+	}
+	catch(IOException | NumberFormatException e){} // not on Linux
+	return null;
+    }
+
+    /** Parses a list of processors, such as <CODE>0-3,8-11</CODE>.
+     *
+     * @param list the list
+     * @return the sorted numbers of the processors
+     * @exception NumberFormatException if the list cannot be parsed
+     */
+    static int[] parseCpuList(String list)
+	throws NumberFormatException{
+	final TreeSet<Integer> r = new TreeSet<Integer>();
+	final StringTokenizer st = new StringTokenizer(list.trim(), ",");
+	while( st.hasMoreTokens() ){
+	    final String tok = st.nextToken().trim();
+	    final int i = tok.indexOf('-');
+	    final int l = Integer.parseInt( ( i < 0 ) ? tok : tok.substring(0, i) );
+	    final int u = ( i < 0 ) ? l : Integer.parseInt(tok.substring(i+1));
+	    for (int j = l; j <= u; j++)
+		r.add(j);
+	}
+	return _toArray(new ArrayList<Integer>(r));
+    }
+
+    /** Converts a list of integers to an array.
+     *
+     * @param l the list
+     * @return the array
+     */
+    private static int[] _toArray(final List<Integer> l){
+	final int[] r = new int[l.size()];
+	for (int i = 0; i < r.length; i++)
+	    r[i] = l.get(i);
+	return r;
+    }
+
+    /** Directory with the NUMA nodes on Linux */
+    private final static String NODE_DIRECTORY = "/sys/devices/system/node";
+
+    /** The wrapper, with placeholders */
+    protected String wra;
+    /** The maximum number of process slots */
+    protected int nSlo;
+    /** For each node, the number of the node followed by the numbers of its processors */
+    protected int[][] nodCpu;
+}
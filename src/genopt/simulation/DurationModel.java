@@ -0,0 +1,241 @@
+package genopt.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Object that predicts the duration of a simulation from the durations of the
+  * simulations of nearby points.
+  *
+  * The prediction is the inverse distance weighted mean of the durations of the
+  * nearest points. Each coordinate is scaled by the range of the values
+  * that have been observed for it, hence continuous and discrete parameters,
+  * for which the index is used as coordinate, contribute equally to the distance.
+  * Only the most recent durations are kept, so that the cost of a prediction is bounded.
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+public class DurationModel
+{
+    /** Constructor.
+     */
+    public DurationModel(){
+	poi = new ArrayList<double[]>();
+	dur = new ArrayList<Double>();
+	next = 0;
+	nBat = 0;
+	batPre = 0;
+	batAct = 0;
+    }
+
+    /** Adds the duration of a simulation.
+     *
+     * @param x the coordinates of the point
+     * @param seconds the duration in seconds
+     */
+    public synchronized void add(double[] x, double seconds){
+	if ( min == null ){
+	    min = x.clone();
+	    max = x.clone();
+	}
+	for (int i = 0; i < x.length; i++){
+	    min[i] = Math.min(min[i], x[i]);
+	    max[i] = Math.max(max[i], x[i]);
+	}
+	if ( poi.size() < MAX_POINTS ){
+	    poi.add(x.clone());
+	    dur.add(seconds);
+	}
+	else{ // replace the oldest point
+	    poi.set(next, x.clone());
+	    dur.set(next, seconds);
+	    next = (next + 1) % MAX_POINTS;
+	}
+    }
+
+    /** Adds the makespan of a batch of simulations that were started in the order
+     *  of their predicted durations.
+     *
+     * @param predicted the predicted makespan in seconds
+     * @param actual the actual makespan in seconds
+     */
+    public synchronized void addBatch(double predicted, double actual){
+	nBat++;
+	batPre += predicted;
+	batAct += actual;
+    }
+
+    /** Gets the statistics of the batches of simulations.
+     *
+     * @return the statistics, or an empty String if no batch has been added
+     */
+    public synchronized String getBatchStatistics(){
+	if ( nBat == 0 )
+	    return "";
+	return "Batches of simulations started in the order of their predicted duration: " + nBat + 
+	    ", predicted makespan " + String.format("%.3f", batPre) + " s, actual makespan " +
+	    String.format("%.3f", batAct) + " s.";
+    }
+
+    /** Predicts the duration of a simulation.
+     *
+     * @param x the coordinates of the point
+     * @return the predicted duration in seconds, or <CODE>Double.NaN</CODE> 
+     *         if no duration has been added
+     */
+    public synchronized double predict(double[] x){
+	final int n = poi.size();
+	if ( n == 0 )
+	    return Double.NaN;
+	final int k = Math.min(NEIGHBORS, n);
+	// the k smallest distances and the indices of their points, in ascending order
+	final double[] d = new double[k];
+	final int[] iNei = new int[k];
+	Arrays.fill(d, Double.MAX_VALUE);
+	for (int j = 0; j < n; j++){
+	    final double dj = _getDistance(x, poi.get(j));
+	    if ( dj >= d[k-1] )
+		continue;
+	    int i = k-1;
+	    while ( i > 0 && d[i-1] > dj ){
+		d[i] = d[i-1];
+		iNei[i] = iNei[i-1];
+		i--;
+	    }
+	    d[i] = dj;
+	    iNei[i] = j;
+	}
+	if ( d[0] == 0 ) // the point has been simulated before
+	    return dur.get(iNei[0]);
+	double sumW = 0;
+	double sumWD = 0;
+	for (int i = 0; i < k; i++){
+	    final double w = 1 / d[i];
+	    sumW += w;
+	    sumWD += w * dur.get(iNei[i]);
+	}
+	return sumWD / sumW;
+    }
+
+    /** Gets the time in which simulations complete if they are started in the given order,
+     *  each one as soon as a thread is idle.
+     *
+     * @param seconds the durations of the simulations, in the order in which they are started
+     * @param nThreads the number of simulations that run in parallel
+     * @return the time in seconds until the last simulation completed
+     */
+    public static double getMakespan(double[] seconds, int nThreads){
+	final double[] loa = new double[Math.max(1, nThreads)];
+	for (double s : seconds){
+	    int iMin = 0;
+	    for (int i = 1; i < loa.length; i++)
+		if ( loa[i] < loa[iMin] )
+		    iMin = i;
+	    loa[iMin] += s;
+	}
+	double r = 0;
+	for (double l : loa)
+	    r = Math.max(r, l);
+	return r;
+    }
+
+    /** Gets the distance between two points, with each coordinate scaled by its observed range.
+     *
+     * @param x the first point
+     * @param y the second point
+     * @return the distance
+     */
+    private double _getDistance(double[] x, double[] y){
+	double r = 0;
+	for (int i = 0; i < x.length; i++){
+	    final double ran = max[i] - min[i];
+	    final double dx = ( ran > 0 ) ? ( x[i] - y[i] ) / ran : ( x[i] - y[i] );
+	    r += dx * dx;
+	}
+	return Math.sqrt(r);
+    }
+
+    /** The maximum number of durations that are kept */
+    private final static int MAX_POINTS = 5000;
+    /** The number of nearest points that are used for a prediction */
+    private final static int NEIGHBORS = 3;
+
+    /** The coordinates of the points */
+    private final List<double[]> poi;
+    /** The durations of the points, in seconds */
+    private final List<Double> dur;
+    /** The index of the point that is replaced next, once <CODE>MAX_POINTS</CODE> are stored */
+    private int next;
+    /** The smallest value of each coordinate */
+    private double[] min;
+    /** The largest value of each coordinate */
+    private double[] max;
+    /** The number of batches */
+    private int nBat;
+    /** The sum of the predicted makespans of the batches, in seconds */
+    private double batPre;
+    /** The sum of the actual makespans of the batches, in seconds */
+    private double batAct;
+}
@@ -159,6 +159,20 @@ public class ErrorChecker implements Cloneable
 	return ErrMesVec;
     }
 
+    /** Checks a single line for possible error messages.
+     *
+     * @param line the line to check
+     * @return the first error string that is contained in <code>line</code>,
+     *   or <code>null</code> if the line contains no error string
+     */
+    public String find(final String line){
+	for (int j = 0; j < nErr; j++){
+	    if (line.indexOf(errInd[j]) != -1)
+		return errInd[j];
+	}
+	return null;
+    }
+
 	/** Gets the number of possible error strings.<br>
 	  *
 	  * <b>Note:</b> This method returns the number possible error strings
@@ -0,0 +1,211 @@
+package genopt.simulation;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.StringTokenizer;
+
+/** Object that follows a log file of a running simulation and checks each new line
+  * for the error messages of an {@link ErrorChecker}.
+  * It can also read the partial value of the objective function that the simulation
+  * program writes after a delimiter, such as <CODE>Progress =</CODE>, while it is running.
+  *
+  * Each call of {@link #check()} reads only the bytes that have been appended since
+  * the previous call, so that the log file can be checked while the simulation
+  * program writes it.
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+public class LogTail
+{
+    /** Constructor.
+     *
+     * @param file the log file, which need not exist yet
+     * @param errorChecker the error checker
+     */
+    public LogTail(File file, ErrorChecker errorChecker){
+	this(file, errorChecker, null);
+    }
+
+    /** Constructor.
+     *
+     * @param file the log file, which need not exist yet
+     * @param errorChecker the error checker, or <CODE>null</CODE> if errors are not checked
+     * @param progressDelimiter the delimiter that precedes the partial value of the
+     *        objective function, or <CODE>null</CODE> if no partial value is read
+     */
+    public LogTail(File file, ErrorChecker errorChecker, String progressDelimiter){
+	fil = file;
+	errChe = errorChecker;
+	proDel = progressDelimiter;
+	pro = Double.NaN;
+	pos = 0;
+	linNum = 1;
+	lin = new ByteArrayOutputStream();
+    }
+
+    /** Reads the lines that have been appended to the log file, and checks them for errors.
+     *
+     * A line that is not yet terminated is also checked, so that an error is found
+     * even if the simulation program stops writing in the middle of a line.
+     *
+     * @return the error message in the format of {@link ErrorChecker#check(String, String)}, 
+     *         or <CODE>null</CODE> if no error has been found
+     * @exception IOException if the log file cannot be read
+     */
+    public String check()
+	throws IOException{
+	final long len = fil.length();
+	if ( len < pos ){ // the file has been replaced, start again
+	    pos = 0;
+	    linNum = 1;
+	    lin.reset();
+	    pro = Double.NaN;
+	}
+	if ( len == pos )
+	    return null;
+	try(RandomAccessFile raf = new RandomAccessFile(fil, "r")){
+	    raf.seek(pos);
+	    final byte[] buf = new byte[(int)Math.min(BUFFER_SIZE, len - pos)];
+	    int n;
+	    while( pos < len && ( n = raf.read(buf, 0, (int)Math.min(buf.length, len - pos)) ) > 0 ){
+		pos += n;
+		int sta = 0;
+		for (int i = 0; i < n; i++){
+		    if ( buf[i] == '\n' ){
+			lin.write(buf, sta, i - sta);
+			sta = i + 1;
+			final String r = _checkLine(true);
+			if ( r != null )
+			    return r;
+			lin.reset();
+			linNum++;
+		    }
+		}
+		lin.write(buf, sta, n - sta);
+	    }
+	}
+	catch(FileNotFoundException e){ // the simulation has not yet created the file
+	    return null;
+	}
+	return ( lin.size() > 0 ) ? _checkLine(false) : null;
+    }
+
+    /** Gets the last partial value of the objective function.
+     *
+     * @return the value that has been read after the last progress delimiter, or
+     *         <CODE>Double.NaN</CODE> if no value has been read
+     */
+    public double getProgress(){
+	return pro;
+    }
+
+    /** Checks the current line for errors, and reads the partial value of the objective function.
+     *
+     * @param complete <CODE>true</CODE> if the line is terminated. The partial value is only
+     *        read from terminated lines, since the number may not be completely written
+     * @return the error message, or <CODE>null</CODE> if no error has been found
+     */
+    private String _checkLine(final boolean complete){
+	String s = new String(lin.toByteArray(), Charset.defaultCharset());
+	if ( s.endsWith("\r") )
+	    s = s.substring(0, s.length()-1);
+	if ( complete && proDel != null ){
+	    final int i = s.indexOf(proDel);
+	    if ( i != -1 ){
+		final StringTokenizer st = new StringTokenizer(s.substring(i + proDel.length()), " \t,;");
+		if ( st.hasMoreTokens() ){
+		    try{
+			pro = Double.parseDouble(st.nextToken());
+		    }
+		    catch(NumberFormatException e){} // not a progress line
+		}
+	    }
+	}
+	if ( errChe == null || errChe.find(s) == null )
+	    return null;
+	return fil.getPath() + ": Following error was found:" + 
+	    LS + "Error on line " + linNum + ":" + LS + "   " + s + LS;
+    }
+
+    /** System dependent line separator */
+    private final static String LS = System.getProperty("line.separator");
+    /** Number of bytes that are read at once */
+    private final static int BUFFER_SIZE = 65536;
+
+    /** The log file */
+    protected File fil;
+    /** The error checker, or <CODE>null</CODE> */
+    protected ErrorChecker errChe;
+    /** The delimiter that precedes the partial value of the objective function, or <CODE>null</CODE> */
+    protected String proDel;
+    /** The last partial value of the objective function, or <CODE>Double.NaN</CODE> */
+    protected double pro;
+    /** The number of bytes that have been read */
+    protected long pos;
+    /** The number of the current line, starting at <CODE>1</CODE> */
+    protected int linNum;
+    /** The bytes of the current line that have been read */
+    protected ByteArrayOutputStream lin;
+}
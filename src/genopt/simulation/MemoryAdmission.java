@@ -0,0 +1,314 @@
+package genopt.simulation;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/** Object that delays the start of simulations if there is not enough free
+  * memory for them.
+  *
+  * The peak memory of each running simulation is sampled from
+  * <CODE>/proc/&lt;pid&gt;/status</CODE> as the sum of <CODE>VmHWM</CODE> over the simulation
+  * program and its descendants. The memory that a new simulation needs is estimated as
+  * the largest peak of the recently completed simulations.
+  * A simulation is started only if the available memory, as reported by
+  * <CODE>/proc/meminfo</CODE>, minus the memory that the running simulations
+  * still need to reach this estimate, exceeds the estimate plus a margin.
+  * At least one simulation is always allowed to run.
+  * This is only supported on Linux; on other systems, simulations are not delayed.
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+public class MemoryAdmission
+{
+    /** Constructor.
+     *
+     * @param margin the memory that is kept free, in bytes
+     */
+    public MemoryAdmission(long margin){
+	mar = margin;
+	run = new ArrayList<Tracker>();
+	his = new ArrayDeque<Long>();
+	maxPea = 0;
+	timer = new Timer("GenOpt-memory-sampler", true);
+	timer.schedule(new TimerTask(){
+		public void run(){
+		    _sample();
+		}
+	    }, SAMPLE_INTERVAL, SAMPLE_INTERVAL);
+    }
+
+    /** Returns <CODE>true</CODE> if the available memory can be read.
+     *
+     * @return <CODE>true</CODE> on Linux, <CODE>false</CODE> otherwise
+     */
+    public static boolean isSupported(){
+	return readMemoryInfo(MEM_AVAILABLE) >= 0;
+    }
+
+    /** Waits until there is enough free memory for a new simulation.
+     *
+     * The memory of the simulation is reserved until {@link #finished(Tracker)} is called.
+     *
+     * @return the tracker of the simulation, to which its process must be set
+     * @exception InterruptedException if the thread is interrupted while waiting
+     */
+    public synchronized Tracker admit()
+	throws InterruptedException{
+	while( !_isMemoryAvailable() )
+	    wait(SAMPLE_INTERVAL);
+	final Tracker t = new Tracker();
+	run.add(t);
+	return t;
+    }
+
+    /** Reserves the memory for a new simulation if there is enough free memory.
+     *
+     * @return the tracker of the simulation, or <CODE>null</CODE> if there is not enough free memory
+     */
+    public synchronized Tracker tryAdmit(){
+	if ( !_isMemoryAvailable() )
+	    return null;
+	final Tracker t = new Tracker();
+	run.add(t);
+	return t;
+    }
+
+    /** Checks whether there is enough free memory for a new simulation.
+     *
+     * @return <CODE>true</CODE> if a new simulation can be started
+     */
+    private boolean _isMemoryAvailable(){
+	if ( run.isEmpty() )
+	    return true;
+	final long est = getEstimate();
+	if ( est == 0 )
+	    return true;
+	// memory that the running simulations are expected to use in addition
+	long res = 0;
+	for (Tracker t : run)
+	    res += Math.max(0, est - t.pea);
+	final long ava = readMemoryInfo(MEM_AVAILABLE);
+	return ( ava < 0 || ava - res >= est + mar );
+    }
+
+    /** Removes a simulation that completed, and adds its peak memory to the estimate.
+     *
+     * @param t the tracker of the simulation
+     */
+    public synchronized void finished(Tracker t){
+	if ( !run.remove(t) )
+	    return;
+	if ( t.pro != null ){
+	    _sample(t);
+	    if ( t.pea > 0 ){
+		his.addLast(t.pea);
+		if ( his.size() > HISTORY_LENGTH )
+		    his.removeFirst();
+		maxPea = Math.max(maxPea, t.pea);
+	    }
+	}
+	notifyAll();
+    }
+
+    /** Gets the estimate of the memory that a new simulation needs.
+     *
+     * @return the largest peak memory of the recently completed simulations or, if no
+     *         simulation completed, of the running simulations, in bytes
+     */
+    public synchronized long getEstimate(){
+	long r = 0;
+	if ( his.isEmpty() ){
+	    for (Tracker t : run)
+		r = Math.max(r, t.pea);
+	}
+	else{
+	    for (Long p : his)
+		r = Math.max(r, p);
+	}
+	return r;
+    }
+
+    /** Gets the largest peak memory of all simulations that completed.
+     *
+     * @return the peak memory in bytes, or <CODE>0</CODE> if no simulation completed
+     */
+    public synchronized long getMaximumPeak(){
+	return maxPea;
+    }
+
+    /** Stops sampling the memory of the simulations.
+     */
+    public void close(){
+	timer.cancel();
+    }
+
+    /** Samples the peak memory of all running simulations.
+     */
+    private synchronized void _sample(){
+	for (Tracker t : run)
+	    _sample(t);
+	notifyAll();
+    }
+
+    /** Samples the peak memory of a simulation.
+     *
+     * @param t the tracker of the simulation
+     */
+    private static void _sample(final Tracker t){
+	if ( t.pro == null )
+	    return;
+	long sum = Math.max(0, readStatus(t.pro.pid(), VM_HWM));
+	final Iterator<ProcessHandle> it = t.pro.descendants().iterator();
+	while( it.hasNext() )
+	    sum += Math.max(0, readStatus(it.next().pid(), VM_HWM));
+	t.pea = Math.max(t.pea, sum);
+    }
+
+    /** Reads a value from <CODE>/proc/&lt;pid&gt;/status</CODE>.
+     *
+     * @param pid the process id
+     * @param key the key, such as <CODE>VmHWM:</CODE>
+     * @return the value in bytes, or <CODE>-1</CODE> if it cannot be read
+     */
+    static long readStatus(final long pid, final String key){
+	return _readKiloBytes(new File("/proc/" + pid + "/status"), key);
+    }
+
+    /** Reads a value from <CODE>/proc/meminfo</CODE>.
+     *
+     * @param key the key, such as <CODE>MemAvailable:</CODE>
+     * @return the value in bytes, or <CODE>-1</CODE> if it cannot be read
+     */
+    static long readMemoryInfo(final String key){
+	return _readKiloBytes(new File("/proc/meminfo"), key);
+    }
+
+    /** Reads a value in kilobytes from a file of the <CODE>/proc</CODE> file system.
+     *
+     * @param f the file
+     * @param key the key at the start of the line
+     * @return the value in bytes, or <CODE>-1</CODE> if it cannot be read
+     */
+    private static long _readKiloBytes(final File f, final String key){
+	try(BufferedReader br = new BufferedReader(new FileReader(f))){
+	    String lin;
+	    while( ( lin = br.readLine() ) != null ){
+		if ( lin.startsWith(key) ){
+		    String val = lin.substring(key.length()).trim();
+		    final int i = val.indexOf(' ');
+		    if ( i > 0 )
+			val = val.substring(0, i);
+		    return 1024 * Long.parseLong(val);
+		}
+	    }
+	}
+	catch(IOException | NumberFormatException e){} // the process terminated, or not on Linux
+	return -1;
+    }
+
+    /** The memory of a simulation.
+      */
+    public static class Tracker
+    {
+	/** Sets the process of the simulation, whose memory is sampled.
+	 *
+	 * @param process the process
+	 */
+	public void setProcess(Process process){
+	    pro = process.toHandle();
+	}
+
+	/** The process, or <CODE>null</CODE> if it has not been started */
+	volatile ProcessHandle pro;
+	/** The peak memory in bytes */
+	volatile long pea;
+    }
+
+    /** Number of milliseconds between two samples of the memory */
+    private final static long SAMPLE_INTERVAL = 500;
+    /** Number of completed simulations whose peak memory is used for the estimate */
+    private final static int HISTORY_LENGTH = 20;
+    /** Key of the peak resident set size in <CODE>/proc/&lt;pid&gt;/status</CODE> */
+    private final static String VM_HWM = "VmHWM:";
+    /** Key of the available memory in <CODE>/proc/meminfo</CODE> */
+    private final static String MEM_AVAILABLE = "MemAvailable:";
+
+    /** The memory that is kept free, in bytes */
+    protected long mar;
+    /** The running simulations */
+    private List<Tracker> run;
+    /** The peak memory of the recently completed simulations */
+    private Deque<Long> his;
+    /** The largest peak memory of all completed simulations */
+    private long maxPea;
+    /** The timer that samples the memory */
+    private Timer timer;
+}
@@ -0,0 +1,292 @@
+package genopt.simulation;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/** Object that manages the process slots used to run the simulations.
+  *
+  * Each simulation that is running holds one slot. The slot stores
+  * the process so that it can be destroyed if the user stops GenOpt,
+  * and the slot index can be used to assign resources to a process.
+  * The number of slots can be changed while simulations are running.
+  * Instances of this class are allocated by
+  * {@link SimulationExecutor} for the whole optimization run.
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+public class ProcessSlots
+{
+    /** Constructor.
+     *
+     * @param numberOfSlots the number of process slots
+     */
+    public ProcessSlots(int numberOfSlots){
+	assert numberOfSlots > 0 : "Number of slots must be bigger than 0.";
+	pro = new Process[numberOfSlots];
+	proFre = new boolean[numberOfSlots];
+	for(int i = 0; i < numberOfSlots; i++)
+	    proFre[i] = true;
+	nSlo = numberOfSlots;
+	nUse = 0;
+	lock = new ReentrantLock();
+	slotFreed = lock.newCondition();
+    }
+
+    /** Gets the number of process slots.
+     *
+     * @return the number of process slots
+     */
+    public int size(){
+	lock.lock();
+	try{ return nSlo; }
+	finally{ lock.unlock(); }
+    }
+
+    /** Sets the number of process slots.
+     *
+     *  If the number is reduced below the number of slots that are in use,
+     *  then the running simulations continue, and no slot is
+     *  acquired until enough slots have been released.
+     *
+     * @param numberOfSlots the number of process slots
+     */
+    public void setSize(int numberOfSlots){
+	assert numberOfSlots > 0 : "Number of slots must be bigger than 0.";
+	lock.lock();
+	try{
+	    if ( numberOfSlots > pro.length ){
+		final int n = pro.length;
+		pro = Arrays.copyOf(pro, numberOfSlots);
+		proFre = Arrays.copyOf(proFre, numberOfSlots);
+		for(int i = n; i < numberOfSlots; i++)
+		    proFre[i] = true;
+	    }
+	    nSlo = numberOfSlots;
+	    slotFreed.signalAll();
+	}
+	finally{ lock.unlock(); }
+    }
+
+    /** Acquires a free slot, and waits until a slot is released if all slots are in use.
+     *
+     * @return the index of the slot
+     * @exception InterruptedException If the current thread is interrupted while waiting
+     */
+    public int acquire()
+	throws InterruptedException{
+	lock.lock();
+	try{
+	    int i = _acquire();
+	    while ( i < 0 ){
+		slotFreed.await();
+		i = _acquire();
+	    }
+	    return i;
+	}
+	finally{ lock.unlock(); }
+    }
+
+    /** Acquires a free slot, and waits at most <CODE>timeout</CODE> milliseconds
+     *  until a slot is released if all slots are in use.
+     *
+     * @param timeout the maximum time to wait in milliseconds
+     * @return the index of the slot, or <CODE>-1</CODE> if no slot has been released
+     * @exception InterruptedException If the current thread is interrupted while waiting
+     */
+    public int acquire(long timeout)
+	throws InterruptedException{
+	lock.lock();
+	try{
+	    long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+	    int i = _acquire();
+	    while ( i < 0 && nanos > 0 ){
+		nanos = slotFreed.awaitNanos(nanos);
+		i = _acquire();
+	    }
+	    return i;
+	}
+	finally{ lock.unlock(); }
+    }
+
+    /** Acquires a free slot if one is available.
+     *
+     * @return the index of the slot, or <CODE>-1</CODE> if all slots are in use
+     */
+    public int tryAcquire(){
+	lock.lock();
+	try{ return _acquire(); }
+	finally{ lock.unlock(); }
+    }
+
+    /** Acquires a free slot. The lock must be held by the caller.
+     *
+     * @return the index of the slot, or <CODE>-1</CODE> if all slots are in use
+     */
+    private int _acquire(){
+	if ( nUse >= nSlo )
+	    return -1;
+	for(int i = 0; i < pro.length; i++){
+	    if (proFre[i]){
+		proFre[i] = false;
+		nUse++;
+		return i;
+	    }
+	}
+	return -1;
+    }
+
+    /** Stores the process that runs in a slot.
+     *
+     * @param iSlo the index of the slot
+     * @param process the process
+     */
+    public void setProcess(int iSlo, Process process){
+	lock.lock();
+	try{ pro[iSlo] = process; }
+	finally{ lock.unlock(); }
+    }
+
+    /** Gets the process that runs in a slot.
+     *
+     * @param iSlo the index of the slot
+     * @return the process, or <CODE>null</CODE> if the slot has no process
+     */
+    public Process getProcess(int iSlo){
+	lock.lock();
+	try{ return pro[iSlo]; }
+	finally{ lock.unlock(); }
+    }
+
+    /** Destroys the process of a slot, if it exists, and releases the slot.
+     *
+     * @param iSlo the index of the slot
+     */
+    public void release(int iSlo){
+	lock.lock();
+	try{
+	    if (pro[iSlo] != null){
+		pro[iSlo].destroy();
+		pro[iSlo] = null;
+	    }
+	    if (!proFre[iSlo]){
+		proFre[iSlo] = true;
+		nUse--;
+	    }
+	    slotFreed.signal();
+	}
+	finally{ lock.unlock(); }
+    }
+
+    /** Destroys the processes of all slots.
+     *
+     *  The slots remain allocated to their simulations, which will
+     *  release them once they notice that their process has been destroyed.
+     */
+    public void destroyAll(){
+	lock.lock();
+	try{
+	    for(int i = 0; i < pro.length; i++){
+		if (pro[i] != null){
+		    pro[i].destroy();
+		    pro[i] = null;
+		}
+	    }
+	}
+	finally{ lock.unlock(); }
+    }
+
+    /** Forcibly destroys a process and all its descendants.
+     *
+     *  This is needed for simulation programs that are started by a script,
+     *  since destroying the script does not stop the simulation.
+     *
+     * @param process the process
+     */
+    public static void destroyTree(final Process process){
+	// destroy the descendants first so that the process cannot start new ones
+	process.descendants().forEach(new Consumer<ProcessHandle>(){
+		public void accept(ProcessHandle h){
+		    h.destroyForcibly();
+		}
+	    });
+	process.destroyForcibly();
+    }
+
+    /** The processes, or <CODE>null</CODE> if a slot has no process */
+    protected Process[] pro;
+    /** Array with flags, flag is <tt>true</tt> if this slot can be used */
+    protected boolean[] proFre;
+    /** The number of slots that can be in use */
+    protected int nSlo;
+    /** The number of slots that are in use */
+    protected int nUse;
+    /** Lock for accessing the slots */
+    protected ReentrantLock lock;
+    /** Condition that is signaled when a slot is released */
+    protected Condition slotFreed;
+}
@@ -0,0 +1,312 @@
+package genopt.simulation;
+
+import genopt.lang.OptimizerException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+
+/** Object that manages named, counted resources, such as the licenses of a 
+  * simulation program, that limit the number of simulations that can run at the same time.
+  *
+  * Each resource is a fair semaphore, hence simulations obtain the resource in the
+  * order in which they requested it. A simulation that requires several resources
+  * acquires them in the order of their names, which avoids deadlocks.
+  * For each resource, the time during which its tokens are in use, and the time
+  * that simulations waited for it, are recorded.
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+public class ResourcePool
+{
+    /** Constructor.
+     */
+    public ResourcePool(){
+	res = new LinkedHashMap<String, Resource>();
+	t0 = System.nanoTime();
+    }
+
+    /** Adds a resource.
+     *
+     * @param name the name of the resource
+     * @param count the number of tokens of the resource
+     * @exception OptimizerException if a resource with this name already exists, or
+     *            if <CODE>count</CODE> is not positive
+     */
+    public void add(String name, int count)
+	throws OptimizerException{
+	if ( res.containsKey(name) )
+	    throw new OptimizerException("Resource '" + name + "' is specified more than once.");
+	if ( count < 1 )
+	    throw new OptimizerException("Resource '" + name + "' must have a count of at least 1, received '" + 
+					 count + "'.");
+	res.put(name, new Resource(count));
+    }
+
+    /** Returns <CODE>true</CODE> if no resource has been added.
+     *
+     * @return <CODE>true</CODE> if the pool is empty
+     */
+    public boolean isEmpty(){
+	return res.isEmpty();
+    }
+
+    /** Gets the number of tokens of each resource that a simulation requires.
+     *
+     * @param names the names of the resources, separated by white space. A name that
+     *        is listed more than once requires as many tokens
+     * @return the number of tokens for each resource name, sorted by name
+     * @exception OptimizerException if a resource has not been added, or requires more 
+     *            tokens than it has
+     */
+    public Map<String, Integer> getRequest(String names)
+	throws OptimizerException{
+	final Map<String, Integer> r = new TreeMap<String, Integer>();
+	for (String n : names.trim().split("\\s+")){
+	    if ( n.length() == 0 )
+		continue;
+	    if ( !res.containsKey(n) )
+		throw new OptimizerException("Resource '" + n + "' is used by the simulation, but no section" + LS +
+					     "'Resource' with 'Name = " + n + ";' has been specified.");
+	    final int c = r.containsKey(n) ? r.get(n) + 1 : 1;
+	    if ( c > res.get(n).cou )
+		throw new OptimizerException("Simulation requires " + c + " tokens of resource '" + n + 
+					     "', but it has only " + res.get(n).cou + ".");
+	    r.put(n, c);
+	}
+	return r;
+    }
+
+    /** Acquires the tokens of the resources, and waits until they are available.
+     *
+     * @param request the number of tokens for each resource, as returned by {@link #getRequest(String)}
+     * @exception InterruptedException if the thread is interrupted while waiting
+     */
+    public void acquire(Map<String, Integer> request)
+	throws InterruptedException{
+	int n = 0;
+	try{
+	    for (Map.Entry<String, Integer> e : request.entrySet()){
+		res.get(e.getKey()).acquire(e.getValue());
+		n++;
+	    }
+	}
+	catch(InterruptedException e){
+	    _release(request, n);
+	    throw e;
+	}
+    }
+
+    /** Acquires the tokens of the resources if they are all available.
+     *
+     * @param request the number of tokens for each resource
+     * @return <CODE>true</CODE> if the tokens have been acquired
+     */
+    public boolean tryAcquire(Map<String, Integer> request){
+	int n = 0;
+	for (Map.Entry<String, Integer> e : request.entrySet()){
+	    if ( !res.get(e.getKey()).tryAcquire(e.getValue()) ){
+		_release(request, n);
+		return false;
+	    }
+	    n++;
+	}
+	return true;
+    }
+
+    /** Releases the tokens of the resources.
+     *
+     * @param request the number of tokens for each resource
+     */
+    public void release(Map<String, Integer> request){
+	_release(request, request.size());
+    }
+
+    /** Releases the tokens of the first resources of a request.
+     *
+     * @param request the number of tokens for each resource
+     * @param n the number of resources whose tokens are released
+     */
+    private void _release(Map<String, Integer> request, int n){
+	for (Map.Entry<String, Integer> e : request.entrySet()){
+	    if ( n-- == 0 )
+		return;
+	    res.get(e.getKey()).release(e.getValue());
+	}
+    }
+
+    /** Gets the utilization of each resource.
+     *
+     * @return the statistics, or an empty string if no resource has been added
+     */
+    public String getStatistics(){
+	if ( res.isEmpty() )
+	    return "";
+	final double dt = (System.nanoTime() - t0) * 1E-9;
+	String r = "Utilization of resources:";
+	for (Map.Entry<String, Resource> e : res.entrySet()){
+	    final Resource s = e.getValue();
+	    synchronized(s){
+		s.update();
+		r += LS + "  " + e.getKey() + ": " + s.cou + ( s.cou == 1 ? " token" : " tokens" ) +
+		    ", mean utilization " + String.format("%.1f", ( dt > 0 ) ? 100 * s.busy / dt / s.cou : 0) +
+		    " %, " + s.nAcq + " acquisitions, mean waiting time " +
+		    String.format("%.3f", ( s.nAcq > 0 ) ? s.wait / s.nAcq : 0) + " s.";
+	    }
+	}
+	return r;
+    }
+
+    /** A resource with its semaphore and its statistics.
+      */
+    private static class Resource
+    {
+	/** Constructor.
+	 *
+	 * @param count the number of tokens
+	 */
+	Resource(int count){
+	    cou = count;
+	    sem = new Semaphore(count, true);
+	    last = System.nanoTime();
+	}
+
+	/** Acquires tokens, and waits until they are available.
+	 *
+	 * @param n the number of tokens
+	 * @exception InterruptedException if the thread is interrupted while waiting
+	 */
+	void acquire(int n) throws InterruptedException{
+	    final long t = System.nanoTime();
+	    sem.acquire(n);
+	    _acquired(n, t);
+	}
+
+	/** Acquires tokens if they are available.
+	 *
+	 * @param n the number of tokens
+	 * @return <CODE>true</CODE> if the tokens have been acquired
+	 */
+	boolean tryAcquire(int n){
+	    if ( !sem.tryAcquire(n) )
+		return false;
+	    _acquired(n, System.nanoTime());
+	    return true;
+	}
+
+	/** Updates the statistics after tokens have been acquired.
+	 *
+	 * @param n the number of tokens
+	 * @param t the time when the tokens have been requested, in nanoseconds
+	 */
+	private synchronized void _acquired(int n, long t){
+	    update();
+	    nUse += n;
+	    nAcq++;
+	    wait += (last - t) * 1E-9;
+	}
+
+	/** Releases tokens.
+	 *
+	 * @param n the number of tokens
+	 */
+	synchronized void release(int n){
+	    update();
+	    nUse -= n;
+	    sem.release(n);
+	}
+
+	/** Adds the time since the last update to the time during which tokens have been in use.
+	 */
+	synchronized void update(){
+	    final long t = System.nanoTime();
+	    busy += nUse * (t - last) * 1E-9;
+	    last = t;
+	}
+
+	/** The number of tokens */
+	final int cou;
+	/** The semaphore with the tokens that are available */
+	final Semaphore sem;
+	/** The number of tokens that are in use */
+	int nUse;
+	/** The number of times tokens have been acquired */
+	int nAcq;
+	/** The integral over time of the number of tokens that are in use, in seconds */
+	double busy;
+	/** The total time that has been waited for the tokens, in seconds */
+	double wait;
+	/** The time of the last update, in nanoseconds */
+	long last;
+    }
+
+    /** System dependent line separator */
+    private final static String LS = System.getProperty("line.separator");
+
+    /** The resources */
+    private Map<String, Resource> res;
+    /** The time when the pool has been created, in nanoseconds */
+    private final long t0;
+}
@@ -0,0 +1,631 @@
+package genopt.simulation;
+
+import genopt.io.FileHandler;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/** Program that runs simulations for a GenOpt run on another computer.
+  *
+  * The agent connects to GenOpt over TCP and runs up to a given number of
+  * simulations in parallel. It is started with
+  * <PRE>
+  *   java -classpath genopt.jar genopt.simulation.SimulationAgent host port [slots [directory]]
+  * </PRE>
+  * where <CODE>host</CODE> and <CODE>port</CODE> are the computer and the
+  * <CODE>AgentPort</CODE> of GenOpt, <CODE>slots</CODE> is the number of
+  * simulations that run in parallel (default: the number of processors), and
+  * <CODE>directory</CODE> is the directory in which the temporary directories of
+  * the simulations are created (default: the directory for temporary files).
+  * The environment variable <CODE>GENOPT_AGENT_TOKEN</CODE> must be set to the
+  * <CODE>AgentToken</CODE> of GenOpt, which only accepts agents that send this token.
+  *
+  * For each simulation, GenOpt sends the simulation input files, the command, and the
+  * names of the files that are sent back. The agent writes the input files to a temporary
+  * directory, links the static files into it, runs the command, and sends back the
+  * simulation output and log files. Paths in the command that are not in the
+  * temporary directory, such as the path of the simulation program, must be valid
+  * on the computer of the agent.
+  * The agent terminates when GenOpt closes the connection, and stops its simulations.
+  *
+  * This class also implements the protocol, which is used by {@link AgentServer}.
+  * All messages start with an <CODE>int</CODE> that identifies the message.
+  * Strings are sent as their length, followed by their UTF-8 encoding, and files
+  * are sent as their length, or <CODE>-1</CODE> if they do not exist, followed by
+  * their contents.
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+public class SimulationAgent
+{
+    /** Constructor.
+     *
+     * @param host the host on which GenOpt runs
+     * @param port the port on which GenOpt waits for agents
+     * @param token the token that GenOpt requires from the agents
+     * @param slots the number of simulations that run in parallel
+     * @param directory the directory in which the temporary directories are created,
+     *        or <CODE>null</CODE> to use the directory for temporary files
+     */
+    public SimulationAgent(String host, int port, String token, int slots, File directory){
+	assert slots > 0 : "slots must be bigger than 0";
+	hos = host;
+	tok = token;
+	por = port;
+	nSlo = slots;
+	dir = directory;
+	jobs = new ConcurrentHashMap<Long, Job>();
+	staFil = new String[0];
+    }
+
+    /** Main routine.
+     *
+     * @param args the host, the port, and optionally the number of slots and the directory
+     */
+    public static void main(String[] args){
+	if ( args.length < 2 || args.length > 4 ){
+	    System.err.println("Usage: java -classpath genopt.jar " + SimulationAgent.class.getName() +
+			       " host port [slots [directory]]");
+	    System.exit(1);
+	}
+	try{
+	    final int port = Integer.parseInt(args[1]);
+	    final int slots = ( args.length > 2 ) ?
+		Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+	    if ( slots < 1 )
+		throw new IllegalArgumentException("The number of slots must be bigger than 0.");
+	    final File dir = ( args.length > 3 ) ? new File(args[3]) : null;
+	    // the token is not an argument, as the arguments can be seen by other users
+	    final String token = System.getenv(TOKEN_VARIABLE);
+	    if ( token == null || token.length() == 0 )
+		throw new IllegalArgumentException("The environment variable " + TOKEN_VARIABLE + 
+						   " must be set to the token of GenOpt.");
+	    new SimulationAgent(args[0], port, token, slots, dir).run();
+	    System.exit(0);
+	}
+	catch(Exception e){
+	    System.err.println("GenOpt simulation agent: " + e.getMessage());
+	    System.exit(1);
+	}
+    }
+
+    /** Connects to GenOpt and runs simulations until GenOpt closes the connection.
+     *
+     * @exception IOException if the agent cannot connect to GenOpt, or if an I/O error occurs
+     * @exception InterruptedException if the thread is interrupted
+     */
+    public void run()
+	throws IOException, InterruptedException{
+	final Socket soc = _connect();
+	basDir = ( dir == null ) ?
+	    Files.createTempDirectory("genopt-agent-").toFile() :
+	    Files.createTempDirectory(dir.toPath(), "genopt-agent-").toFile();
+	staDir = new File(basDir, "static");
+	exec = Executors.newFixedThreadPool(nSlo, new ThreadFactory(){
+		private int iThr = 0;
+		public synchronized Thread newThread(Runnable r){
+		    Thread t = new Thread(r, "GenOpt-agent-" + (++iThr));
+		    t.setDaemon(true);
+		    return t;
+		}
+	    });
+	try{
+	    soc.setTcpNoDelay(true);
+	    final DataInputStream in = new DataInputStream(new BufferedInputStream(soc.getInputStream()));
+	    out = new DataOutputStream(new BufferedOutputStream(soc.getOutputStream()));
+	    String hosNam;
+	    try{ hosNam = InetAddress.getLocalHost().getHostName(); }
+	    catch(IOException e){ hosNam = "unknown"; }
+	    synchronized(out){
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writeBytes(out, tok.getBytes(StandardCharsets.UTF_8));
+		out.writeInt(nSlo);
+		writeString(out, hosNam);
+		out.flush();
+	    }
+	    System.err.println("GenOpt simulation agent: Connected to " + hos + ":" + por + 
+			       " with " + nSlo + " slots.");
+	    final Thread pin = _startPing();
+	    try{
+		// GenOpt sends the static files first once it accepted the agent
+		boolean acc = false;
+		while( true ){
+		    int typ;
+		    try{
+			typ = in.readInt();
+		    }
+		    catch(IOException e){
+			if ( !acc )
+			    throw new IOException("GenOpt rejected the connection. Check that " +
+						  TOKEN_VARIABLE + " is set to the token of GenOpt.");
+			if ( e instanceof EOFException )
+			    break; // GenOpt closed the connection
+			throw e;
+		    }
+		    if ( typ == STATIC ){
+			_readStaticFiles(in);
+			acc = true;
+		    }
+		    else if ( typ == JOB ){
+			final Job j = new Job(in);
+			jobs.put(j.id, j);
+			exec.execute(j);
+		    }
+		    else if ( typ == CANCEL ){
+			final Job j = jobs.get(in.readLong());
+			if ( j != null )
+			    j.cancel();
+		    }
+		    else
+			throw new IOException("Received unknown message " + typ + ".");
+		}
+	    }
+	    finally{
+		pin.interrupt();
+	    }
+	}
+	finally{
+	    exec.shutdownNow();
+	    for (Job j : jobs.values())
+		j.cancel();
+	    soc.close();
+	    exec.awaitTermination(SHUTDOWN_WAIT, TimeUnit.SECONDS);
+	    FileHandler.deleteDirectory(basDir);
+	}
+    }
+
+    /** Connects to GenOpt, and retries until GenOpt accepts the connection.
+     *
+     * @return the socket
+     * @exception IOException if the agent cannot connect within <CODE>CONNECT_WAIT</CODE> seconds
+     * @exception InterruptedException if the thread is interrupted
+     */
+    private Socket _connect()
+	throws IOException, InterruptedException{
+	final long deadline = System.nanoTime() + CONNECT_WAIT * 1000000000L;
+	while( true ){
+	    try{
+		return new Socket(hos, por);
+	    }
+	    catch(IOException e){
+		// GenOpt may not have started yet
+		if ( System.nanoTime() > deadline )
+		    throw new IOException("Cannot connect to " + hos + ":" + por + ": " + e.getMessage());
+		Thread.sleep(CONNECT_INTERVAL);
+	    }
+	}
+    }
+
+    /** Starts a thread that sends a message to GenOpt at regular intervals,
+     *  so that GenOpt can detect agents that are no longer reachable.
+     *
+     * @return the thread
+     */
+    private Thread _startPing(){
+	final Thread t = new Thread("GenOpt-agent-ping"){
+		public void run(){
+		    try{
+			while( true ){
+			    Thread.sleep(PING_INTERVAL);
+			    synchronized(out){
+				out.writeInt(PING);
+				out.flush();
+			    }
+			}
+		    }
+		    catch(InterruptedException | IOException e){} // the connection has been closed
+		}
+	    };
+	t.setDaemon(true);
+	t.start();
+	return t;
+    }
+
+    /** Reads the static files and stores them in the directory for the static files.
+     *
+     * @param in the input stream
+     * @exception IOException if an I/O error occurs
+     */
+    private void _readStaticFiles(final DataInputStream in)
+	throws IOException{
+	final String[] nam = readStrings(in);
+	for (int i = 0; i < nam.length; i++){
+	    final File f = resolve(staDir, nam[i]);
+	    f.getParentFile().mkdirs();
+	    Files.write(f.toPath(), readBytes(in));
+	}
+	staFil = nam;
+    }
+
+    /** Sends the result of a simulation.
+     *
+     * @param id the identifier of the simulation
+     * @param status the status, which is <CODE>RESULT_EXIT</CODE>, <CODE>RESULT_TIMEOUT</CODE> or
+     *        <CODE>RESULT_ERROR</CODE>
+     * @param exitValue the exit value of the simulation program
+     * @param duration the duration of the simulation in seconds
+     * @param message the error stream of the simulation program, or the error message
+     * @param files the contents of the files that are sent back, with <CODE>null</CODE>
+     *        for files that do not exist
+     */
+    private void _sendResult(final long id, final int status, final int exitValue, final double duration,
+			     final String message, final byte[][] files){
+	try{
+	    synchronized(out){
+		out.writeInt(RESULT);
+		out.writeLong(id);
+		out.writeInt(status);
+		out.writeInt(exitValue);
+		out.writeDouble(duration);
+		writeString(out, message);
+		out.writeInt(files.length);
+		for (int i = 0; i < files.length; i++)
+		    writeBytes(out, files[i]);
+		out.flush();
+	    }
+	}
+	catch(IOException e){} // the connection has been closed, and the agent terminates
+    }
+
+    /** A simulation that is run by the agent.
+      */
+    private class Job implements Runnable
+    {
+	/** Constructor. Reads the simulation from the input stream.
+	 *
+	 * @param in the input stream
+	 * @exception IOException if an I/O error occurs
+	 */
+	Job(final DataInputStream in)
+	    throws IOException{
+	    id = in.readLong();
+	    timeout = in.readDouble();
+	    proDir = readString(in);
+	    com = readStrings(in);
+	    final String[] envNam = readStrings(in);
+	    final String[] envVal = readStrings(in);
+	    env = new LinkedHashMap<String, String>();
+	    for (int i = 0; i < envNam.length; i++)
+		env.put(envNam[i], envVal[i]);
+	    stdOut = readString(in);
+	    inpNam = readStrings(in);
+	    inpCon = new byte[inpNam.length][];
+	    for (int i = 0; i < inpNam.length; i++)
+		inpCon[i] = readBytes(in);
+	    resNam = readStrings(in);
+	    cancelled = false;
+	}
+
+	/** Runs the simulation and sends the result.
+	 */
+	public void run(){
+	    final File jobDir = new File(basDir, "job-" + id);
+	    final long t0 = System.nanoTime();
+	    try{
+		final String jobPat = jobDir.getAbsolutePath();
+		jobDir.mkdirs();
+		for (int i = 0; i < inpNam.length; i++){
+		    final File f = resolve(jobDir, inpNam[i]);
+		    f.getParentFile().mkdirs();
+		    Files.write(f.toPath(), inpCon[i]);
+		}
+		final String[] sta = staFil;
+		for (int i = 0; i < sta.length; i++){
+		    final File f = resolve(jobDir, sta[i]);
+		    f.getParentFile().mkdirs();
+		    WorkingDirectoryPool.link(resolve(staDir, sta[i]), f);
+		}
+		final String[] arg = new String[com.length];
+		for (int i = 0; i < com.length; i++)
+		    arg[i] = SimulationStarter.replaceString(com[i], DIRECTORY, jobPat);
+		final File proWorDir = new File(SimulationStarter.replaceString(proDir, DIRECTORY, jobPat));
+		proWorDir.mkdirs();
+		final File errFil = new File(jobDir, SimulationStarter.ERROR_FILE_NAME);
+		final ProcessBuilder pb = new ProcessBuilder(arg);
+		pb.directory(proWorDir);
+		pb.environment().putAll(env);
+		pb.redirectError(errFil);
+		if ( stdOut.length() == 0 )
+		    pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+		else{
+		    final File f = new File(SimulationStarter.replaceString(stdOut, DIRECTORY, jobPat));
+		    pb.redirectOutput( f.isAbsolute() ? f : new File(proWorDir, f.getPath()) );
+		}
+		synchronized(this){
+		    if ( cancelled )
+			return;
+		    pro = pb.start();
+		}
+		if ( timeout > 0 && !pro.waitFor((long)(1000*timeout), TimeUnit.MILLISECONDS) ){
+		    ProcessSlots.destroyTree(pro);
+		    _sendResult(id, RESULT_TIMEOUT, -1, (System.nanoTime() - t0) * 1E-9, "", new byte[0][]);
+		    return;
+		}
+		final int ev = pro.waitFor();
+		synchronized(this){
+		    if ( cancelled )
+			return;
+		}
+		final String sem = ( ev == 0 ) ? "" : 
+		    FileHandler.readTail(errFil, SimulationStarter.MAX_ERROR_STREAM_LENGTH);
+		final byte[][] res = new byte[resNam.length][];
+		for (int i = 0; i < resNam.length; i++){
+		    final File f = resolve(jobDir, resNam[i]);
+		    res[i] = f.isFile() ? Files.readAllBytes(f.toPath()) : null;
+		}
+		_sendResult(id, RESULT_EXIT, ev, (System.nanoTime() - t0) * 1E-9, 
+			    ( sem == null ) ? "" : sem, res);
+	    }
+	    catch(InterruptedException e){
+		// the agent terminates
+		if ( pro != null )
+		    ProcessSlots.destroyTree(pro);
+	    }
+	    catch(Exception e){
+		_sendResult(id, RESULT_ERROR, -1, (System.nanoTime() - t0) * 1E-9,
+			    e.getClass().getName() + ": " + e.getMessage(), new byte[0][]);
+	    }
+	    finally{
+		jobs.remove(id);
+		FileHandler.deleteDirectory(jobDir);
+	    }
+	}
+
+	/** Stops the simulation, and does not send a result.
+	 */
+	synchronized void cancel(){
+	    cancelled = true;
+	    if ( pro != null )
+		ProcessSlots.destroyTree(pro);
+	}
+
+	/** The identifier of the simulation */
+	final long id;
+	/** The time limit in seconds, or <CODE>0</CODE> */
+	final double timeout;
+	/** The working directory of the process */
+	final String proDir;
+	/** The program and its arguments */
+	final String[] com;
+	/** The environment variables */
+	final Map<String, String> env;
+	/** The file for the standard output, or an empty string */
+	final String stdOut;
+	/** The names of the simulation input files, relative to the temporary directory */
+	final String[] inpNam;
+	/** The contents of the simulation input files */
+	final byte[][] inpCon;
+	/** The names of the files that are sent back, relative to the temporary directory */
+	final String[] resNam;
+	/** The process, or <CODE>null</CODE> if it has not been started */
+	Process pro;
+	/** Flag, <CODE>true</CODE> if the simulation has been cancelled */
+	boolean cancelled;
+    }
+
+    /** Writes a string.
+     *
+     * @param out the output stream
+     * @param s the string
+     * @exception IOException if an I/O error occurs
+     */
+    static void writeString(final DataOutputStream out, final String s)
+	throws IOException{
+	writeBytes(out, s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Reads a string.
+     *
+     * @param in the input stream
+     * @return the string
+     * @exception IOException if an I/O error occurs
+     */
+    static String readString(final DataInputStream in)
+	throws IOException{
+	return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    /** Writes an array of strings.
+     *
+     * @param out the output stream
+     * @param s the strings
+     * @exception IOException if an I/O error occurs
+     */
+    static void writeStrings(final DataOutputStream out, final String[] s)
+	throws IOException{
+	out.writeInt(s.length);
+	for (int i = 0; i < s.length; i++)
+	    writeString(out, s[i]);
+    }
+
+    /** Reads an array of strings.
+     *
+     * @param in the input stream
+     * @return the strings
+     * @exception IOException if an I/O error occurs
+     */
+    static String[] readStrings(final DataInputStream in)
+	throws IOException{
+	final String[] r = new String[in.readInt()];
+	for (int i = 0; i < r.length; i++)
+	    r[i] = readString(in);
+	return r;
+    }
+
+    /** Writes the contents of a file.
+     *
+     * @param out the output stream
+     * @param b the contents, or <CODE>null</CODE> if the file does not exist
+     * @exception IOException if an I/O error occurs
+     */
+    static void writeBytes(final DataOutputStream out, final byte[] b)
+	throws IOException{
+	if ( b == null )
+	    out.writeInt(-1);
+	else{
+	    out.writeInt(b.length);
+	    out.write(b);
+	}
+    }
+
+    /** Reads the contents of a file.
+     *
+     * @param in the input stream
+     * @return the contents, or <CODE>null</CODE> if the file does not exist
+     * @exception IOException if an I/O error occurs
+     */
+    static byte[] readBytes(final DataInputStream in)
+	throws IOException{
+	final int n = in.readInt();
+	if ( n < 0 )
+	    return null;
+	final byte[] r = new byte[n];
+	in.readFully(r);
+	return r;
+    }
+
+    /** Gets a file from its name relative to a directory.
+     *
+     * @param directory the directory
+     * @param name the name, with <CODE>/</CODE> as the separator
+     * @return the file
+     * @exception IOException if the file is not in <CODE>directory</CODE> or in a subdirectory of it
+     */
+    static File resolve(final File directory, final String name)
+	throws IOException{
+	final File r = new File(directory, name.replace('/', File.separatorChar));
+	if ( !r.getCanonicalPath().startsWith(directory.getCanonicalPath() + File.separator) )
+	    throw new IOException("File '" + name + "' is not in directory '" + directory.getPath() + "'.");
+	return r;
+    }
+
+    /** Identification that is sent when an agent connects */
+    final static int MAGIC = 0x47656e4f;
+    /** Version of the protocol */
+    final static int VERSION = 2;
+    /** Maximum length of the token, in bytes */
+    final static int MAX_TOKEN_LENGTH = 1024;
+    /** Environment variable with the token that GenOpt requires from the agents */
+    public final static String TOKEN_VARIABLE = "GENOPT_AGENT_TOKEN";
+    /** Message with the static files, sent by GenOpt */
+    final static int STATIC = 1;
+    /** Message with a simulation, sent by GenOpt */
+    final static int JOB = 2;
+    /** Message that stops a simulation, sent by GenOpt */
+    final static int CANCEL = 3;
+    /** Message with the result of a simulation, sent by the agent */
+    final static int RESULT = 4;
+    /** Message that shows that the agent is alive, sent by the agent */
+    final static int PING = 5;
+    /** Status of a simulation program that terminated */
+    final static int RESULT_EXIT = 0;
+    /** Status of a simulation program that exceeded its time limit */
+    final static int RESULT_TIMEOUT = 1;
+    /** Status of a simulation that could not be run */
+    final static int RESULT_ERROR = 2;
+    /** Placeholder for the temporary directory of the simulation in the command */
+    final static String DIRECTORY = "%GenOpt.Agent.Directory%";
+    /** Number of milliseconds between two messages that show that the agent is alive */
+    final static long PING_INTERVAL = 10000;
+    /** Number of milliseconds between two attempts to connect to GenOpt */
+    private final static long CONNECT_INTERVAL = 2000;
+    /** Number of seconds during which the agent tries to connect to GenOpt */
+    private final static long CONNECT_WAIT = 300;
+    /** Number of seconds to wait for the simulations when the agent terminates */
+    private final static long SHUTDOWN_WAIT = 10;
+
+    /** The host on which GenOpt runs */
+    protected String hos;
+    /** The port on which GenOpt waits for agents */
+    protected int por;
+    /** The token that GenOpt requires from the agents */
+    private String tok;
+    /** The number of simulations that run in parallel */
+    protected int nSlo;
+    /** The directory in which the temporary directories are created, or <CODE>null</CODE> */
+    protected File dir;
+    /** The directory of this agent */
+    protected File basDir;
+    /** The directory with the static files */
+    protected File staDir;
+    /** The names of the static files, relative to the temporary directory */
+    protected volatile String[] staFil;
+    /** The stream to GenOpt */
+    protected DataOutputStream out;
+    /** The thread pool that runs the simulations */
+    protected ExecutorService exec;
+    /** The simulations that are running, by their identifier */
+    private Map<Long, Job> jobs;
+}
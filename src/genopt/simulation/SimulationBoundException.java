@@ -1,11 +1,12 @@
 package genopt.simulation;
 
-import java.io.IOException;
+import genopt.lang.OptimizerException;
 
-
-/** Class to buffer the error stream.
-  * This class is needed to avoid a deadlock of waitFor(), which may
-  * happen if the simulation program writes a large message.
+/** Exception that is thrown if a simulation has been stopped because the partial value
+  * of its objective function exceeded the bound that has been set by the optimization algorithm.
+  *
+  * The exception stores the partial value, which is a lower bound of the objective function
+  * value if the objective function increases monotonically during the simulation.
   * 
   * <P><I>This project was carried out at:</I>
   * <UL><LI><A HREF="http://www.lbl.gov">
@@ -71,53 +72,28 @@ import java.io.IOException;
   * or derivative works thereof, in binary and source code form. 
  */
 
-public class ThreadedInputStream extends Thread
-    {
-	public ThreadedInputStream(java.io.InputStream inputStream){
-	    is = inputStream;
-	    sb = new java.lang.StringBuffer();
-	    ioExc = null;
-	}
-	
-	/** Runs this thread and buffers its output
+public class SimulationBoundException extends OptimizerException
+{
+	/** The serial version number
+	 * 
 	 */
-	public void run(){
-	    try{
-		byte[] by = new byte[1];
-		while(this != null){
-		    int ch = is.read(by);
-		    if(ch != -1){ // -1 indicates the end of the stream
-			sb.append((char)by[0]); 
-		    }
-		    else break;
-		}
-		is.close();
-	    } 
-	    catch (IOException e){
-		ioExc = e;
-	    } 
-	}
+	private static final long serialVersionUID = 1L;
 
-	/** Throws all exceptions that have been catched when running 
-	 *  {@link #run() run}.
-	 *
-	 * @exception IOException
-	 */
-	public void throwStoredException() 
-	    throws IOException{
-	    if ( ioExc != null ) throw ioExc;
-	}
-	
-	/** Gets the output input stream that has been buffered
-	 */
-	String getInputStream(){
-	    return new String(sb.toString());
+	/** Constructs a SimulationBoundException with the specified detail message
+	  * @param s the detail message
+	  * @param lowerBound the partial value of the objective function
+	  */
+	public SimulationBoundException(String s, double lowerBound)
+	{
+		super(s);
+		lowBou = lowerBound;
 	}
 
-	/** The <b>IOException</b> stored by this thread */
-	protected IOException ioExc;
-	/** The buffered input stream */
-	java.io.InputStream is;
-	/** The string buffer that stores the output of the stream */
-	java.lang.StringBuffer sb = null;
-    }
+	/** Gets the partial value of the objective function when the simulation was stopped
+	  * @return the lower bound of the objective function value
+	  */
+	public double getLowerBound() { return lowBou; }
+
+	/** The partial value of the objective function */
+	private final double lowBou;
+}
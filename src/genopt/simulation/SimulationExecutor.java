@@ -0,0 +1,336 @@
+package genopt.simulation;
+
+import genopt.lang.OptimizerException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/** Object that executes the simulations of an optimization run.
+  *
+  * One instance of this class is made when the optimization algorithm
+  * is instantiated, and it is used for all function evaluations
+  * until {@link #shutdown()} is called at the end of the run.
+  * It owns the worker threads, the process slots of the
+  * {@link SimulationStarter} and the count down latch that
+  * is used to wait for a batch of simulations.
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+public class SimulationExecutor
+{
+    /** Constructor.
+     *
+     * @param simulationStarter the simulation starter that is used to run the simulations
+     * @param maximumThreads the maximum number of simulations that run in parallel
+     * @exception OptimizerException If the process slots of the simulation starter have 
+     *                               already been allocated
+     */
+    public SimulationExecutor(SimulationStarter simulationStarter, int maximumThreads)
+	throws OptimizerException{
+	this(simulationStarter, maximumThreads, false);
+    }
+
+    /** Constructor.
+     *
+     *  If <CODE>autoTune</CODE> is <CODE>true</CODE>, then the number of 
+     *  simulations that run in parallel starts at the number of processors
+     *  and is adjusted by a {@link ConcurrencyTuner}, but it does not
+     *  exceed <CODE>maximumThreads</CODE>.
+     *
+     * @param simulationStarter the simulation starter that is used to run the simulations
+     * @param maximumThreads the maximum number of simulations that run in parallel
+     * @param autoTune set to <CODE>true</CODE> to adjust the number of simulations that 
+     *                 run in parallel based on the measured throughput
+     * @exception OptimizerException If the process slots of the simulation starter have 
+     *                               already been allocated
+     */
+    public SimulationExecutor(SimulationStarter simulationStarter, int maximumThreads,
+			      boolean autoTune)
+	throws OptimizerException{
+	assert maximumThreads > 0 : "maximumThreads must be bigger than 0";
+	simSta = simulationStarter;
+	maxThrPoo = maximumThreads;
+	if (autoTune){
+	    proSlo = new ProcessSlots(ConcurrencyTuner.getInitialNumberOfSlots(maxThrPoo));
+	    conTun = new ConcurrencyTuner(proSlo, maxThrPoo);
+	}
+	else{
+	    proSlo = new ProcessSlots(maxThrPoo);
+	    conTun = null;
+	}
+	nBatSub = 0;
+	nBatDon = 0;
+	cleQue = new CleanupQueue(CLEANUP_TASKS_PER_THREAD * maxThrPoo);
+	// a fixed thread pool whose size grows if simulation agents connect
+	exec = new ThreadPoolExecutor(maxThrPoo, maxThrPoo, 0L, TimeUnit.MILLISECONDS,
+				      new LinkedBlockingQueue<Runnable>(), new ThreadFactory(){
+		private final AtomicInteger iThr = new AtomicInteger(0);
+		public Thread newThread(Runnable r){
+		    Thread t = new Thread(r, "GenOpt-simulation-" + iThr.incrementAndGet());
+		    t.setDaemon(true);
+		    return t;
+		}
+	    });
+	simSta.setSimulationExecutor(this);
+    }
+
+    /** Sets the number of slots of the simulation agents.
+     *
+     *  The simulations that run on agents do not use process slots, but they need
+     *  a thread. Hence, the number of threads is set to the maximum number of
+     *  simulations that run on this computer plus the number of slots of the agents.
+     *
+     * @param numberOfSlots the number of slots of all agents that are connected
+     */
+    public synchronized void setNumberOfRemoteSlots(int numberOfSlots){
+	final int n = maxThrPoo + numberOfSlots;
+	// the maximum pool size must never be smaller than the core pool size
+	if ( n > exec.getMaximumPoolSize() ){
+	    exec.setMaximumPoolSize(n);
+	    exec.setCorePoolSize(n);
+	}
+	else{
+	    exec.setCorePoolSize(n);
+	    exec.setMaximumPoolSize(n);
+	}
+    }
+
+    /** Gets the maximum number of simulations that run in parallel.
+     *
+     * @return the maximum number of simulations that run in parallel
+     */
+    public int getMaximumNumberOfThreads(){
+	return maxThrPoo;
+    }
+
+    /** Gets the number of simulations that are currently allowed to run in parallel.
+     *
+     * @return the number of process slots
+     */
+    public int getNumberOfThreads(){
+	return proSlo.size();
+    }
+
+    /** Gets the queue for the clean-up tasks of the simulations.
+     *
+     * @return the clean-up queue
+     */
+    public CleanupQueue getCleanupQueue(){
+	return cleQue;
+    }
+
+    /** Gets the process slots of the simulations.
+     *
+     * @return the process slots
+     */
+    public ProcessSlots getProcessSlots(){
+	return proSlo;
+    }
+
+    /** Gets the fraction of the current batch of simulations that completed.
+     *
+     *  A batch consists of all simulations that have been submitted since
+     *  the last time that no simulation was pending.
+     *
+     * @return the fraction of the current batch that completed, or <CODE>0</CODE>
+     *         if no simulation has been submitted
+     */
+    public synchronized double getBatchCompletion(){
+	return ( nBatSub == 0 ) ? 0 : (double)nBatDon / (double)nBatSub;
+    }
+
+    /** Submits a simulation and returns immediately.
+     *
+     *  The returned future completes when the simulation completed.
+     *  If the simulation stored an exception, then the future completes
+     *  exceptionally with this exception.
+     *  If the executor is shut down before the simulation started, then the
+     *  future is cancelled.
+     *
+     * @param simulation the simulation to be run
+     * @return the future that completes when the simulation completed
+     * @exception OptimizerException if the executor has already been shut down
+     */
+    public CompletableFuture<Void> submit(final SimulationThread simulation)
+	throws OptimizerException{
+	if (exec.isShutdown())
+	    throw new OptimizerException("Program error. The simulation executor has already been shut down.");
+	synchronized(this){
+	    if ( nBatSub == nBatDon ){ // no simulation is pending, start a new batch
+		nBatSub = 0;
+		nBatDon = 0;
+	    }
+	    nBatSub++;
+	}
+	if ( conTun != null )
+	    conTun.submitted();
+	final SimulationTask task = new SimulationTask(simulation);
+	exec.execute(task);
+	return task.future.whenComplete(new BiConsumer<Void, Throwable>(){
+		public void accept(Void v, Throwable t){
+		    synchronized(SimulationExecutor.this){ nBatDon++; }
+		    if ( conTun != null )
+			conTun.completed();
+		}
+	    });
+    }
+
+    /** Shuts down the executor.
+     *
+     *  Simulations that are still running are given some time to complete.
+     *  Afterwards, their processes are destroyed, the queued clean-up tasks are
+     *  completed, and the working directories that are no longer in use are deleted.
+     *  This method must be called at the end of the optimization run.
+     */
+    public void shutdown(){
+	exec.shutdown();
+	try{
+	    if (!exec.awaitTermination(SHUTDOWN_WAIT, TimeUnit.SECONDS)){
+		proSlo.destroyAll();
+		_cancel(exec.shutdownNow());
+	    }
+	}
+	catch(InterruptedException e){
+	    proSlo.destroyAll();
+	    _cancel(exec.shutdownNow());
+	    Thread.currentThread().interrupt();
+	}
+	simSta.closeWorkers();
+	simSta.closeBackends();
+	cleQue.close();
+	simSta.getWorkingDirectoryPool().close();
+    }
+
+    /** Cancels the futures of the simulations that never started.
+     *
+     * @param tasks the tasks that never started
+     */
+    private static void _cancel(final List<Runnable> tasks){
+	for(Runnable r : tasks){
+	    if (r instanceof SimulationTask)
+		((SimulationTask)r).future.cancel(false);
+	}
+    }
+
+    /** Task that runs a simulation and completes its future.
+      */
+    private static class SimulationTask implements Runnable
+    {
+	/** Constructor.
+	 *
+	 * @param simulation the simulation to be run
+	 */
+	SimulationTask(final SimulationThread simulation){
+	    simThr = simulation;
+	    future = new CompletableFuture<Void>();
+	}
+
+	/** Runs the simulation and completes the future.
+	 */
+	public void run(){
+	    try{
+		simThr.run();
+		simThr.throwStoredException();
+		future.complete(null);
+	    }
+	    catch(Throwable t){
+		future.completeExceptionally(t);
+	    }
+	}
+
+	/** The simulation */
+	final SimulationThread simThr;
+	/** The future that completes when the simulation completed */
+	final CompletableFuture<Void> future;
+    }
+
+    /** Number of seconds to wait for running simulations when the executor is shut down */
+    private final static long SHUTDOWN_WAIT = 10;
+
+    /** Number of clean-up tasks per thread that can be queued before a simulation thread waits */
+    private final static int CLEANUP_TASKS_PER_THREAD = 2;
+
+    /** The simulation starter */
+    protected SimulationStarter simSta;
+    /** The process slots */
+    protected ProcessSlots proSlo;
+    /** The queue for the clean-up tasks */
+    protected CleanupQueue cleQue;
+    /** The maximum number of threads in the pool */
+    protected int maxThrPoo;
+    /** The tuner for the number of parallel simulations, or <CODE>null</CODE> */
+    protected ConcurrencyTuner conTun;
+    /** The number of simulations of the current batch that have been submitted */
+    private int nBatSub;
+    /** The number of simulations of the current batch that completed */
+    private int nBatDon;
+    /** The thread pool that runs the simulations */
+    protected ThreadPoolExecutor exec;
+}
@@ -1,10 +1,26 @@
 package genopt.simulation;
 
 import genopt.db.OptimizationIni;
+import genopt.io.FileHandler;
 import genopt.lang.OptimizerException;
 import java.io.*;
-import java.util.concurrent.locks.*;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.StringTokenizer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /** Object for calling a simulation program.
   * 
@@ -76,6 +92,8 @@ public class SimulationStarter implements Cloneable
 {
     /** System dependent line separator */
     private final static String LS = System.getProperty("line.separator");
+    /** System dependent file separator */
+    private final static String FS = System.getProperty("file.separator");
 
     /** constructor
      * @param command the command line (with placeholder for the variables)
@@ -96,24 +114,681 @@ public class SimulationStarter implements Cloneable
 	this.setWorkingDirectory(workingDirectory);
         OptIni           = optIni;
 	_updateCommandLine();
-	maxThrPoo = 0;
-	lock = new ReentrantLock();
+	_compileCommandLine();
+	proSlo = null;
+	stdOut = null;
+	env = new LinkedHashMap<String, String>();
+	timOut = 0;
+	timOutMedFac = 0;
+	retTimOut = false;
+	durSta = new DurationStatistics();
+	lasDur = new ThreadLocal<Double>();
+	speMedFac = 0;
+	speBatFra = 1;
+	simExe = null;
+	scrDir = null;
+	staFil = new String[0];
+	worDirPoo = null;
+	inProSim = null;
+	inProSimNam = null;
+	perWor = false;
+	worMaxEva = 0;
+	worIdl = new ArrayDeque<SimulationWorker>();
+	worAll = new ArrayList<SimulationWorker>();
+	agPor = 0;
+	agAdd = "";
+	agTok = "";
+	agSer = null;
+	spoDir = null;
+	subCom = "";
+	jobArrSiz = 1;
+	spoQue = null;
+	cpuAffWra = "";
+	cpuAff = null;
+	memMar = -1;
+	memAdm = null;
+	logErrChe = null;
+	proDel = null;
+	resNam = "";
+	resPoo = null;
+	resReq = null;
+	sloNum = new int[0];
+	sloDur = new double[0];
     }
 
-    /** Sets the maximum number of threads in the pool.
+    /** Sets the directory in which the temporary working directories of the
+     *  simulations are created.
+     *
+     * This can be a directory on a local disk or in memory, such as <CODE>/dev/shm</CODE>,
+     * if the directory of the optimization initialization file is on a network drive.
+     *
+     * @param directory the directory, or <CODE>null</CODE> to use the
+     *        directory of the optimization initialization file
+     * @exception OptimizerException if <CODE>directory</CODE> is not a directory
+     */
+    public void setScratchDirectory(String directory)
+	throws OptimizerException{
+	if ( directory == null || directory.length() == 0 )
+	    scrDir = null;
+	else{
+	    if ( !new File(directory).isDirectory() )
+		throw new OptimizerException("Scratch directory '" + directory + "' does not exist.");
+	    scrDir = directory;
+	}
+    }
+
+    /** Sets the files that are linked into the working directory of each simulation.
+     *
+     * The files must not be changed by the simulation, as they may be hard links
+     * to the original files. They are linked once into each working directory,
+     * at the same position relative to the directory of the optimization
+     * initialization file.
+     *
+     * @param fileNames the file names, relative to the directory of the
+     *        optimization initialization file, or absolute
+     * @exception OptimizerException if a file does not exist or is not in the directory of the
+     *            optimization initialization file or in a subdirectory of it
+     * @exception IOException if the canonical path name cannot be constructed
+     */
+    public void setStaticFiles(String[] fileNames)
+	throws OptimizerException, IOException{
+	final String iniPat = OptIni.getOptIniPat();
+	staFil = new String[fileNames.length];
+	for (int i = 0; i < fileNames.length; i++){
+	    File f = new File(fileNames[i]);
+	    if ( !f.isAbsolute() )
+		f = new File(iniPat, fileNames[i]);
+	    if ( !f.isFile() )
+		throw new OptimizerException("Static file '" + f.getPath() + "' does not exist.");
+	    staFil[i] = f.getCanonicalPath();
+	    if ( !staFil[i].startsWith(iniPat) )
+		throw new OptimizerException("Static file '" + staFil[i] + "' must be in the directory of the" + LS +
+					     "optimization initialization file '" + iniPat + "', or in a subdirectory of it.");
+	}
+    }
+
+    /** Sets the class that is evaluated in GenOpt's Java virtual machine instead of
+     *  starting the simulation program.
+     *
+     * @param className the name of the class that implements {@link InProcessSimulation}
+     * @param classPath the directories and jar files, separated by the path separator,
+     *        from which the class is loaded, relative to the directory of the optimization
+     *        initialization file, or an empty string to use GenOpt's class path
+     * @exception OptimizerException if the class cannot be loaded or instantiated
+     */
+    public void setInProcessSimulation(String className, String classPath)
+	throws OptimizerException{
+	try{
+	    final StringTokenizer st = new StringTokenizer(classPath, File.pathSeparator);
+	    final URL[] url = new URL[st.countTokens()];
+	    for (int i = 0; i < url.length; i++){
+		File f = new File(st.nextToken());
+		if ( !f.isAbsolute() )
+		    f = new File(OptIni.getOptIniPat(), f.getPath());
+		url[i] = f.toURI().toURL();
+	    }
+	    final ClassLoader cl = new URLClassLoader(url, getClass().getClassLoader());
+	    final Class<?> c = Class.forName(className, true, cl);
+	    if ( !InProcessSimulation.class.isAssignableFrom(c) )
+		throw new OptimizerException("Class '" + className + "' does not implement '" +
+					     InProcessSimulation.class.getName() + "'.");
+	    inProSim = (InProcessSimulation)c.getDeclaredConstructor().newInstance();
+	    inProSimNam = className;
+	}
+	catch(OptimizerException e){
+	    throw e;
+	}
+	catch(Exception e){
+	    throw new OptimizerException("Cannot instantiate simulation class '" + className + "': " +
+					 e.getClass().getName() + ": " + e.getMessage());
+	}
+    }
+
+    /** Sets whether the simulation program runs as a persistent worker.
+     *
+     * If enabled, the command is started once for each process slot that is used,
+     * and the simulations are sent to the workers through their standard input,
+     * as described in {@link SimulationWorker}.
+     *
+     * @param persistent set to <CODE>true</CODE> to use persistent workers
+     * @param maximumEvaluations the number of simulations after which a worker
+     *        is replaced by a new one, or <CODE>0</CODE> if workers are only replaced
+     *        after they terminated
+     */
+    public void setPersistentWorker(boolean persistent, int maximumEvaluations){
+	perWor = persistent;
+	worMaxEva = maximumEvaluations;
+    }
+
+    /** Sets the port on which GenOpt waits for {@link SimulationAgent}s that run
+     *  simulations on other computers.
+     *
+     * GenOpt starts to wait for agents when the simulation executor is set.
+     *
+     * @param port the port, or <CODE>0</CODE> if no agents are used
+     * @param address the address of the network interface on which GenOpt waits for agents,
+     *        or an empty string to wait on all interfaces
+     * @param token the token that the agents must send
+     */
+    public void setAgentPort(int port, String address, String token){
+	agPor = port;
+	agAdd = address;
+	agTok = token;
+    }
+
+    /** Gets the server that runs simulations on agents.
+     *
+     * @return the server, or <CODE>null</CODE> if no agents are used
+     */
+    public AgentServer getAgentServer(){
+	return agSer;
+    }
+
+    /** Closes the back ends that run or admit the simulations, which are
+     *  the connections to all agents, the spool queue and the memory admission.
+     *
+     * This method must be called at the end of the optimization run.
+     */
+    public void closeBackends(){
+	if ( agSer != null )
+	    agSer.close();
+	if ( spoQue != null )
+	    spoQue.close();
+	if ( memAdm != null )
+	    memAdm.close();
+    }
+
+    /** Sets the spool directory through which the simulations are run on the
+     *  computers of a cluster, as described in {@link SpoolWorker}.
+     *
+     * The temporary directories of the simulations are created in the spool directory.
+     *
+     * @param directory the spool directory, or an empty string if no spool directory is used
+     * @param submitCommand the command that submits a batch of jobs, or an empty string
+     *        if the jobs are claimed by workers that are started independently of GenOpt
+     * @param jobArraySize the maximum number of jobs that are submitted together
+     * @exception OptimizerException if <CODE>directory</CODE> is not a directory
+     */
+    public void setSpoolDirectory(String directory, String submitCommand, int jobArraySize)
+	throws OptimizerException{
+	if ( directory == null || directory.length() == 0 )
+	    return;
+	setScratchDirectory(directory);
+	spoDir = directory;
+	subCom = submitCommand;
+	jobArrSiz = jobArraySize;
+    }
+
+    /** Sets the command that starts the simulation program on the processors
+     *  of its process slot, as described in {@link CpuAffinity}.
+     *
+     * @param wrapper the command, such as <CODE>taskset -c %GenOpt.Slot.Cores%</CODE>,
+     *        or an empty string if the processors are not assigned
+     */
+    public void setCpuAffinity(String wrapper){
+	cpuAffWra = wrapper;
+    }
+
+    /** Sets the memory that is kept free when simulations are started, 
+     *  as described in {@link MemoryAdmission}.
+     *
+     * @param margin the memory in megabytes, or a negative number if
+     *        simulations are not delayed if memory is low
+     */
+    public void setMemoryMargin(double margin){
+	memMar = margin;
+    }
+
+    /** Sets the error checker that checks the log files while the simulation program is running.
+     *
+     * If the log files contain an error message, the simulation program is stopped 
+     * without waiting for it to terminate. This only applies to simulation programs
+     * that are started as processes on this computer.
+     *
+     * @param errorChecker the error checker, or <CODE>null</CODE> if the log files are 
+     *        only checked after the simulation program terminated
+     */
+    public void setLiveErrorCheck(ErrorChecker errorChecker){
+	logErrChe = errorChecker;
+    }
+
+    /** Sets the delimiter after which the simulation program writes the partial value
+     *  of the objective function to its log files while it is running.
+     *
+     * If the objective function increases monotonically during the simulation, 
+     * then the simulation can be stopped as soon as the partial value exceeds
+     * the bound that is passed to {@link #run(String, double)}.
+     * This only applies to simulation programs that are started as processes on this computer.
+     *
+     * @param delimiter the delimiter, or an empty string if no partial values are written
+     */
+    public void setProgressDelimiter(String delimiter){
+	proDel = ( delimiter == null || delimiter.length() == 0 ) ? null : delimiter;
+    }
+
+    /** Sets the names of the resources that each simulation requires.
+     *
+     * @param names the names of the resources, separated by white space, or an empty string.
+     *        A name that is listed more than once requires as many tokens
+     */
+    public void setResources(String names){
+	resNam = names;
+    }
+
+    /** Sets the resources that limit the number of simulations that can run at the same time.
+     *
+     * This method must be called after {@link #setResources(String)}.
+     *
+     * @param pool the resources
+     * @exception OptimizerException if the simulation requires a resource that is 
+     *            not in <CODE>pool</CODE>, or more tokens than the resource has
+     */
+    public void setResourcePool(ResourcePool pool)
+	throws OptimizerException{
+	resPoo = pool;
+	final Map<String, Integer> r = pool.getRequest(resNam);
+	resReq = r.isEmpty() ? null : r;
+    }
+
+    /** Gets the utilization of the resources.
+     *
+     * @return the statistics, or an empty string if no resources are used
+     */
+    public String getResourceStatistics(){
+	return ( resReq == null ) ? "" : resPoo.getStatistics();
+    }
+
+    /** Gets the largest peak memory of the simulations.
+     *
+     * @return the statistics, or an empty string if the memory has not been sampled
+     */
+    public String getMemoryStatistics(){
+	if ( memAdm == null || memAdm.getMaximumPeak() == 0 )
+	    return "";
+	return "Largest peak memory of a simulation: " + 
+	    String.format("%.1f", memAdm.getMaximumPeak() / 1048576.) + " MB.";
+    }
+
+    /** Gets the number of simulations and their mean duration for each process slot.
+     *
+     * @return the statistics, or an empty string if only one slot has been used
+     */
+    public synchronized String getSlotStatistics(){
+	String r = "";
+	int nUse = 0;
+	for (int i = 0; i < sloNum.length; i++){
+	    if ( sloNum[i] == 0 )
+		continue;
+	    nUse++;
+	    r += LS + "  Slot " + (i+1) + ( cpuAff == null ? "" : " (processors " + cpuAff.getCores(i) + ")" ) +
+		": " + sloNum[i] + " simulations, mean duration " + 
+		String.format("%.3f", sloDur[i] / sloNum[i]) + " s, " +
+		String.format("%.1f", 3600 * sloNum[i] / sloDur[i]) + " simulations per hour.";
+	}
+	return ( nUse > 1 ) ? "Simulations per process slot:" + r : "";
+    }
+
+    /** Adds the duration of a simulation to the statistics of its process slot.
+     *
+     * @param iSlo the index of the slot
+     * @param duration the duration in seconds
+     */
+    private synchronized void _addSlotDuration(final int iSlo, final double duration){
+	if ( iSlo >= sloNum.length ){
+	    sloNum = Arrays.copyOf(sloNum, iSlo+1);
+	    sloDur = Arrays.copyOf(sloDur, iSlo+1);
+	}
+	sloNum[iSlo]++;
+	sloDur[iSlo] += duration;
+    }
+
+    /** Returns <CODE>true</CODE> if the simulations read their parameters from the
+     *  simulation input files and write their results to the simulation output files.
+     *
+     * @return <CODE>false</CODE> if a class that implements {@link InProcessSimulation} 
+     *         or persistent workers are used, <CODE>true</CODE> otherwise
+     */
+    public boolean usesFiles(){
+	return ( inProSim == null && !perWor );
+    }
+
+    /** Evaluates a simulation in GenOpt's Java virtual machine, or by a persistent worker.
+     *
+     * The simulation holds a process slot while it is evaluated, so that the number
+     * of simulations that run in parallel is the same as for simulation programs.
+     * For simulations in GenOpt's Java virtual machine, time limits and 
+     * speculative execution are not used, since a thread cannot be stopped safely.
+     * For persistent workers, the time limit is used, but not speculative execution.
+     *
+     * @param parameters the names and values of the parameters
+     * @return the values of the objective functions
+     * @exception OptimizerException if the simulation fails
+     * @exception InterruptedException if the thread is interrupted while waiting for a process slot
+     */
+    public double[] evaluate(Map<String, Double> parameters)
+	throws OptimizerException, InterruptedException{
+	lasDur.remove();
+	final int iSlo = proSlo.acquire();
+	try{
+	    final long t0 = System.nanoTime();
+	    final double[] r = perWor ? _evaluateWorker(iSlo, parameters) : inProSim.evaluate(parameters);
+	    _addDuration( (System.nanoTime() - t0) * 1E-9 );
+	    return r;
+	}
+	catch(OptimizerException e){
+	    throw e;
+	}
+	catch(Exception e){
+	    throw new OptimizerException( ( perWor ? "Simulation worker" : "Simulation class '" + inProSimNam + "'" ) +
+					  " threw " + e.getClass().getName() + ": " + e.getMessage());
+	}
+	finally{
+	    proSlo.release(iSlo);
+	}
+    }
+
+    /** Evaluates a simulation by a persistent worker.
+     *
+     * An idle worker is used if one exists, otherwise a new worker is started.
+     *
+     * @param iSlo the index of the process slot
+     * @param parameters the names and values of the parameters
+     * @return the values of the objective functions
+     * @exception OptimizerException if the simulation fails
+     */
+    private double[] _evaluateWorker(final int iSlo, final Map<String, Double> parameters)
+	throws OptimizerException{
+	String req = "";
+	for (Map.Entry<String, Double> e : parameters.entrySet())
+	    req += ( req.length() == 0 ? "" : " " ) + e.getKey() + "=" + e.getValue();
+	SimulationWorker w;
+	synchronized(worIdl){
+	    w = worIdl.pollFirst();
+	}
+	if ( w == null )
+	    w = _startWorker();
+	// the worker is destroyed if the user stops GenOpt
+	proSlo.setProcess(iSlo, w.getProcess());
+	boolean suc = false;
+	try{
+	    final double[] r = w.evaluate(req, getTimeout());
+	    suc = true;
+	    return r;
+	}
+	catch(IOException e){
+	    throw new OptimizerException(LS + "Cannot communicate with the simulation worker: " + e.getMessage());
+	}
+	catch(OptimizerException e){
+	    if (proSlo.getProcess(iSlo) == null)
+		throw new OptimizerException(genopt.GenOpt.USER_STOP_MESSAGE);
+	    // a worker that reported an error for this point can evaluate further points
+	    suc = w.hasReportedError();
+	    throw new OptimizerException(e.getMessage() + _getWorkerDiagnostics(w.getDirectoryName()));
+	}
+	finally{
+	    // remove the worker from the slot so that it is not destroyed when the slot is released
+	    proSlo.setProcess(iSlo, null);
+	    _releaseWorker(w, suc);
+	}
+    }
+
+    /** Starts a persistent worker in a temporary directory.
+     *
+     * @return the worker
+     * @exception OptimizerException if the worker cannot be started
+     */
+    private SimulationWorker _startWorker()
+	throws OptimizerException{
+	String dirNam = null;
+	try{
+	    dirNam = worDirPoo.acquire();
+	    final File proWorDir = new File(OptIni.convertToTemporaryPath(worDir, dirNam));
+	    proWorDir.mkdirs();
+	    final ProcessBuilder pb = new ProcessBuilder(_getCommandArray(dirNam));
+	    pb.directory(proWorDir);
+	    pb.environment().putAll(env);
+	    final File errFil = new File(proWorDir, ERROR_FILE_NAME);
+	    pb.redirectError(errFil);
+	    final SimulationWorker w = new SimulationWorker(pb, dirNam, errFil, worMaxEva);
+	    synchronized(worIdl){
+		worAll.add(w);
+	    }
+	    return w;
+	}
+	catch(IOException | SecurityException e){
+	    String ErrMes =
+		LS + "Exception in starting the simulation worker" + LS;
+	    if ( dirNam != null )
+		ErrMes += _getWorkerDiagnostics(dirNam) + LS;
+	    throw new OptimizerException(ErrMes + LS + "Exception message: " + LS + e.getMessage());
+	}
+    }
+
+    /** Gets the command line and the working directory of a worker for error reporting.
+     *
+     * @param dirNam the name of the temporary directory of the worker
+     * @return the diagnostics, preceded by a line separator, or an empty string
+     *         if they cannot be obtained
+     */
+    private String _getWorkerDiagnostics(final String dirNam){
+	try{
+	    return LS + getCommandDiagnostics(dirNam);
+	}
+	catch(IOException e){
+	    return "";
+	}
+    }
+
+    /** Returns a worker to the idle workers, or stops it.
+     *
+     * A worker that did not complete its last simulation is stopped, and its
+     * temporary directory is kept so that it can be inspected.
+     * A worker that reached its maximum number of simulations is stopped,
+     * and its temporary directory is reused.
+     *
+     * @param w the worker
+     * @param success <CODE>true</CODE> if the worker completed its last simulation,
+     *        or reported an error for it
+     */
+    private void _releaseWorker(final SimulationWorker w, final boolean success){
+	if ( success && w.isUsable() ){
+	    synchronized(worIdl){
+		worIdl.addFirst(w);
+	    }
+	    return;
+	}
+	synchronized(worIdl){
+	    worAll.remove(w);
+	}
+	if ( success ){
+	    w.close();
+	    worDirPoo.release(w.getDirectoryName());
+	}
+	else
+	    w.destroy();
+    }
+
+    /** Stops all persistent workers.
+     *
+     * This method must be called at the end of the optimization run.
+     */
+    public void closeWorkers(){
+	SimulationWorker[] w;
+	synchronized(worIdl){
+	    w = worAll.toArray(new SimulationWorker[worAll.size()]);
+	    worAll.clear();
+	    worIdl.clear();
+	}
+	for (int i = 0; i < w.length; i++){
+	    w[i].close();
+	    worDirPoo.release(w[i].getDirectoryName());
+	}
+    }
+
+    /** Gets the pool with the working directories of the simulations.
+     *
+     * @return the pool with the working directories, or <CODE>null</CODE> if 
+     *         no simulation executor has been set
+     */
+    public WorkingDirectoryPool getWorkingDirectoryPool(){
+	return worDirPoo;
+    }
+
+    /** Enables speculative execution of simulations that take much longer than the others.
+     *
+     * A duplicate of a simulation is started on an idle process slot if the simulation
+     * takes longer than <CODE>medianFactor</CODE> times the median duration of the
+     * simulations that completed successfully so far, and if at least the fraction
+     * <CODE>batchFraction</CODE> of the simulations of the current batch completed.
+     * The median is only used once at least {@link #MIN_SAMPLES_MEDIAN} simulations completed.
+     *
+     * @param medianFactor the factor for the median duration, or <CODE>0</CODE> to disable
+     *                     speculative execution
+     * @param batchFraction the fraction of the batch that must have completed
+     * @exception OptimizerException if speculative execution is enabled but not all
+     *            simulation files are in temporary directories
+     */
+    public void setSpeculativeExecution(double medianFactor, double batchFraction)
+	throws OptimizerException{
+	if ( medianFactor > 0 ){
+	    // a duplicate needs its own directories for all files
+	    final String iniPat = OptIni.getOptIniPat();
+	    boolean tem = worDir.startsWith(iniPat);
+	    for (int i = 0; i < OptIni.getNumberOfInputFiles(); i++)
+		tem = tem && OptIni.getSimInpPat(i).startsWith(iniPat);
+	    for (int i = 0; i < OptIni.getNumberOfOutputFiles(); i++)
+		tem = tem && OptIni.getSimOutPat(i).startsWith(iniPat);
+	    for (int i = 0; i < OptIni.getNumberOfLogFiles(); i++)
+		tem = tem && OptIni.getSimLogPat(i).startsWith(iniPat);
+	    if ( !tem )
+		throw new OptimizerException("Speculative execution requires that the working directory and all simulation" + LS +
+					     "input, output and log files are in the directory of the optimization" + LS +
+					     "initialization file '" + iniPat + "', or in a subdirectory of it.");
+	}
+	speMedFac = medianFactor;
+	speBatFra = batchFraction;
+    }
+
+    /** Sets the time limit for the simulations.
+     *
+     * If a simulation exceeds its time limit, then its process and all descendants
+     * of it are destroyed, and a {@link SimulationTimeoutException} is thrown.
+     * The time limit is the smaller of <CODE>timeout</CODE> and
+     * <CODE>medianFactor</CODE> times the median duration of the
+     * simulations that completed successfully so far. The latter is only used
+     * once at least {@link #MIN_SAMPLES_MEDIAN} simulations completed.
+     * A value of <CODE>0</CODE> disables the respective limit.
+     *
+     * @param timeout the time limit in seconds, or <CODE>0</CODE>
+     * @param medianFactor the factor for the median duration, or <CODE>0</CODE>
+     * @param retry set to <CODE>true</CODE> if a simulation that exceeded its time limit
+     *              may be evaluated a second time
+     */
+    public void setTimeout(double timeout, double medianFactor, boolean retry){
+	timOut = timeout;
+	timOutMedFac = medianFactor;
+	retTimOut = retry;
+    }
+
+    /** Returns <CODE>true</CODE> if a simulation that exceeded its time limit
+     *  may be evaluated a second time.
+     *
+     * @return <CODE>true</CODE> if a simulation that exceeded its time limit
+     *         may be evaluated a second time
+     */
+    public boolean retryAfterTimeout(){
+	return retTimOut;
+    }
+
+    /** Gets the statistics of the durations of the simulations that completed successfully.
+     *
+     * @return the statistics of the simulation durations
+     */
+    public DurationStatistics getDurationStatistics(){
+	return durSta;
+    }
+
+    /** Gets the duration of the simulation that has been run last by the calling thread.
+     *
+     * The duration is the time during which the simulation program ran, without the time
+     * that the simulation waited for a process slot, for resources or for memory.
+     *
+     * @return the duration in seconds, or <CODE>Double.NaN</CODE> if the simulation
+     *         did not complete successfully, for example because it was stopped at a bound
+     */
+    public double getLastDuration(){
+	final Double r = lasDur.get();
+	return ( r == null ) ? Double.NaN : r.doubleValue();
+    }
+
+    /** Adds the duration of a simulation that completed successfully.
+     *
+     * @param duration the duration in seconds
+     */
+    private void _addDuration(final double duration){
+	durSta.add(duration);
+	lasDur.set(duration);
+    }
+
+    /** Gets the time limit for a simulation that is started now.
+     *
+     * @return the time limit in seconds, or <CODE>0</CODE> if there is no time limit
+     */
+    protected double getTimeout(){
+	double r = timOut;
+	if ( timOutMedFac > 0 && durSta.size() >= MIN_SAMPLES_MEDIAN ){
+	    final double t = timOutMedFac * durSta.getMedian();
+	    if ( r == 0 || t < r )
+		r = t;
+	}
+	return r;
+    }
+
+    /** Sets environment variables for the simulation program.
+     *
+     * The variables are added to the environment that the simulation
+     * program inherits from GenOpt.
+     * This can be used, for example, to set <CODE>OMP_NUM_THREADS=1</CODE>
+     * if several simulations run in parallel.
+     *
+     * @param environment the names and values of the environment variables
+     */
+    public void setEnvironment(Map<String, String> environment){
+	env = new LinkedHashMap<String, String>(environment);
+    }
+
+    /** Sets the file to which the standard output of the simulation program is written.
+     *
+     * A relative file name is resolved against the working directory of the simulation.
+     *
+     * @param fileName the name of the file, or <CODE>null</CODE> if the standard output
+     *                 is to be discarded
+     */
+    public void setStandardOutput(String fileName){
+	stdOut = ( fileName == null || fileName.length() == 0 ) ? null : fileName;
+    }
+
+    /** Sets the simulation executor that runs the simulations, and uses its process slots.
      * This method can only be called once.
      *
-     * @param maximumThreads The maximum number of threads in the pool
-     * @exception OptimizerException If the maximum number of processes has already been allocated
+     * @param simulationExecutor The simulation executor
+     * @exception OptimizerException If the process slots have already been allocated
      */
-    public void setMaximumNumberOfThreads(int maximumThreads) 
+    public void setSimulationExecutor(SimulationExecutor simulationExecutor) 
 	throws OptimizerException{
-	if (maxThrPoo == 0){
-	    maxThrPoo = maximumThreads;
-	    pro = new Process[maxThrPoo];
-	    proFre = new AtomicBoolean[maxThrPoo];
-	    for(int i = 0; i < maxThrPoo; i++)
-		proFre[i] = new AtomicBoolean(true);
+	if (proSlo == null){
+	    simExe = simulationExecutor;
+	    proSlo = simExe.getProcessSlots();
+	    worDirPoo = new WorkingDirectoryPool(OptIni, scrDir, staFil);
+	    if ( agPor > 0 )
+		agSer = new AgentServer(agPor, agAdd, agTok, simExe, OptIni.getOptIniPat(), staFil);
+	    if ( cpuAffWra.length() > 0 )
+		cpuAff = new CpuAffinity(cpuAffWra, simExe.getMaximumNumberOfThreads());
+	    if ( memMar >= 0 && MemoryAdmission.isSupported() )
+		memAdm = new MemoryAdmission((long)(memMar * 1048576));
+	    if ( spoDir != null )
+		spoQue = new SpoolQueue(new File(spoDir), worDirPoo.getScratchDirectory().getName(),
+					subCom, jobArrSiz, new File(worDir), env);
 	}
 	else
 	    throw new OptimizerException("Program error. The maximum number of processes has already been allocated.");
@@ -123,7 +798,7 @@ public class SimulationStarter implements Cloneable
     /** Updates the command line. This command must be used to update the command
      *  line that was set by the constructor.
      *  Prior to the simulation, the method 
-     * <A HREF="#_updateCommandLine(String)">_updateCommandLine(String)</A>
+     * <A HREF="#_getCommandArray(String)">_getCommandArray(String)</A>
      * needs to be called to update the output and log directory with the full name of the
      * temporary working directory.
      *
@@ -166,52 +841,126 @@ public class SimulationStarter implements Cloneable
 	return;
     }
 
-    /** Updates the command line by replacing the output paths with the output path of the 
-     *  working directory, which can change from one simulation to another.
+    /** Splits the command line into the program and its arguments.
+     *
+     * The command line is split at white space, as is done by 
+     * <CODE>Runtime.exec(String)</CODE>.
+     * Arguments that contain a path of the working directory
+     * are marked, since these paths change from one simulation to another.
+     * Their paths are replaced by canonical paths after the path of the working
+     * directory has been set. All other arguments are final, and paths in them 
+     * are replaced by their canonical paths.
      *
      * Prior to this function, the function 
      * <A HREF="#_updateCommandLine()">_updateCommandLine()</A>
      * need to be called.
      *
-     * @param worDirPre Prefix for working directory. This will be added to all output and log paths.
      * @exception IOException If an I/O error occurs, which is possible because the construction of the 
      *                        canonical pathname may require filesystem queries
      */
-    private String _updateAndGetCommandLine(String worDirPre)
+    private void _compileCommandLine()
 	throws IOException{
-	//update the command line so that it is ready to use
-	String ret = CommandLine;
-	for (int i = 0; i < OptIni.getNumberOfLogFiles(); i++)
-	    ret = replaceString(ret, "%Simulation.Files.Log.Path" + (i+1) + "%",
-				OptIni.convertToTemporaryPath(OptIni.getSimLogPat(i),
-							      worDirPre));
-
-	for (int i = 0; i < OptIni.getNumberOfOutputFiles(); i++)
-	    ret = replaceString(ret, "%Simulation.Files.Output.Path" + (i+1) + "%",
-				OptIni.convertToTemporaryPath(OptIni.getSimOutPat(i),
-							      worDirPre));
-
 	// cut the file extension from the string if necessairy
+	String comLin = CommandLine;
 	final int nSimInpFil = OptIni.getNumberOfInputFiles();
-	String[] SimInputFileCal = new String[nSimInpFil];
-	for(int i = 0; i < nSimInpFil; i++)
-	    SimInputFileCal[i] = OptIni.getSimInpFilNam(i);
-	if (!PrombtFileExtension){
-	    for(int i = 0; i < nSimInpFil; i++){	
-		int j = SimInputFileCal[i].lastIndexOf('.');
+	for(int i = 0; i < nSimInpFil; i++){
+	    String SimInputFileCal = OptIni.getSimInpFilNam(i);
+	    if (!PrombtFileExtension){
+		int j = SimInputFileCal.lastIndexOf('.');
 		if (j != -1)	//cut the extension only if there is really one
-		    SimInputFileCal[i] = new String(SimInputFileCal[i].substring(0, j));
+		    SimInputFileCal = new String(SimInputFileCal.substring(0, j));
 	    }
+	    comLin = replaceString(comLin, "%Simulation.Files.Input.File" + (i+1) +"%",
+				   SimInputFileCal);  
 	}
-	for(int i = 0; i < nSimInpFil; i++){
-	    ret = replaceString(ret, "%Simulation.Files.Input.File" + (i+1) +"%",
-				SimInputFileCal[i]);  
-	    ret = replaceString(ret, "%Simulation.Files.Input.Path" + (i+1) +"%",
-				OptIni.convertToTemporaryPath(OptIni.getSimInpPat(i),
-							      worDirPre));
+
+	StringTokenizer st = new StringTokenizer(comLin);
+	comArrCan = new ConcurrentHashMap<String, String[]>();
+	comArg = new String[st.countTokens()];
+	comArgWorDir = new boolean[comArg.length];
+	for (int i = 0; st.hasMoreTokens(); i++){
+	    final String tok = st.nextToken();
+	    comArgWorDir[i] = 
+		( tok.indexOf("%Simulation.Files.Log.Path") != -1 ||
+		  tok.indexOf("%Simulation.Files.Output.Path") != -1 ||
+		  tok.indexOf("%Simulation.Files.Input.Path") != -1 );
+	    comArg[i] = comArgWorDir[i] ? tok : 
+		genopt.io.FileHandler.replacePathsByCanonicalPaths(tok, OptIni.getOptIniPat());
 	}
+    }
 
-	return genopt.io.FileHandler.replacePathsByCanonicalPaths(ret, OptIni.getOptIniPat());
+    /** Gets the program and its arguments for the simulation in the working directory
+     *  with the prefix <CODE>worDirPre</CODE>.
+     *
+     * The paths of the working directory, which can change from one simulation 
+     * to another, are set in the arguments that refer to them, and are then
+     * replaced by their canonical paths. All other arguments have been set by
+     * <A HREF="#_compileCommandLine()">_compileCommandLine()</A>.
+     * As the working directories are reused, the arguments are only computed
+     * for the first simulation in each working directory.
+     *
+     * @param worDirPre Prefix for working directory. This will be added to all output and log paths.
+     * @return the program and its arguments
+     */
+    private String[] _getCommandArray(String worDirPre){
+	String[] r = comArrCan.get(worDirPre);
+	if ( r == null ){
+	    r = _substituteCommandArray(worDirPre);
+	    try{
+		for (int iA = 0; iA < r.length; iA++)
+		    if (comArgWorDir[iA])
+			r[iA] = genopt.io.FileHandler.replacePathsByCanonicalPaths(r[iA], OptIni.getOptIniPat());
+		comArrCan.put(worDirPre, r);
+	    }
+	    catch(IOException e){ // the paths are still valid, but not canonical
+		return r;
+	    }
+	}
+	return r.clone();
+    }
+
+    /** Gets the program and its arguments for the simulation in the working directory
+     *  with the prefix <CODE>worDirPre</CODE>, without replacing the paths of the 
+     *  working directory by their canonical paths.
+     *
+     * Use this method for simulations on other computers, whose paths are converted 
+     * relative to the working directory.
+     *
+     * @param worDirPre Prefix for working directory. This will be added to all output and log paths.
+     * @return the program and its arguments
+     */
+    private String[] _substituteCommandArray(String worDirPre){
+	String[] r = new String[comArg.length];
+	for (int iA = 0; iA < comArg.length; iA++){
+	    r[iA] = comArg[iA];
+	    if (!comArgWorDir[iA])
+		continue;
+	    for (int i = 0; i < OptIni.getNumberOfLogFiles(); i++)
+		r[iA] = replaceString(r[iA], "%Simulation.Files.Log.Path" + (i+1) + "%",
+				      OptIni.convertToTemporaryPath(OptIni.getSimLogPat(i),
+								    worDirPre));
+	    for (int i = 0; i < OptIni.getNumberOfOutputFiles(); i++)
+		r[iA] = replaceString(r[iA], "%Simulation.Files.Output.Path" + (i+1) + "%",
+				      OptIni.convertToTemporaryPath(OptIni.getSimOutPat(i),
+								    worDirPre));
+	    for (int i = 0; i < OptIni.getNumberOfInputFiles(); i++)
+		r[iA] = replaceString(r[iA], "%Simulation.Files.Input.Path" + (i+1) +"%",
+				      OptIni.convertToTemporaryPath(OptIni.getSimInpPat(i),
+								    worDirPre));
+	}
+	return r;
+    }
+
+    /** Gets the command line as a String.
+     *
+     * @param arg the program and its arguments
+     * @return the command line
+     */
+    private static String _getCommandLine(final String[] arg){
+	String r = "";
+	for (int i = 0; i < arg.length; i++)
+	    r += ( i == 0 ) ? arg[i] : " " + arg[i];
+	return r;
     }
 
 
@@ -246,33 +995,6 @@ public class SimulationStarter implements Cloneable
 	return WorStr;			
     }
 
-    /** Returns the thread number to be used by this process
-     * @return The thread number to be used by this process
-     * @exception OptimizerException If no thread is available. This condition should never occur.
-     */
-    private int _getThreadNumber()
-	throws OptimizerException{
-	lock.lock();
-	try{
-	    int i = 0;
-	    for( ; i < pro.length; i++){
-		if (proFre[i].get() == true){
-		    proFre[i].set(false);
-		    return i;
-		}
-	    }
-	    if ( i == pro.length){
-		final String em = "Program error. No thread available in SimulationStarter" +
-		    LS + "Please send bug report.";
-		throw new OptimizerException(em);
-	    }
-	}// end of try
-	finally{ lock.unlock(); }
-	// no thread available, this should not happen
-	return -1;
-    }
-
-
     /** Gets a string representation of the command line and the working directory.
      *  Use this method for diagnostics report in case the simulation had errors.
      *
@@ -283,7 +1005,7 @@ public class SimulationStarter implements Cloneable
     public String getCommandDiagnostics(String worDirPre) 
 	throws IOException{
 	final File proWorDir = new File(OptIni.convertToTemporaryPath(worDir, worDirPre));
-	final String comLin = _updateAndGetCommandLine(worDirPre);
+	final String comLin = _getCommandLine(_getCommandArray(worDirPre));
 	String r = 
 	    "Simulation working directory : '" + proWorDir.getCanonicalPath() + "'" + LS +
 	    "Command string               : '" + comLin + "'";
@@ -292,42 +1014,381 @@ public class SimulationStarter implements Cloneable
 
 
     /** Runs the simulation program<dd>
+     *
+     * If speculative execution is enabled, and the simulation takes much longer than
+     * the other simulations, then a duplicate of the simulation is started in another
+     * working directory. Whichever of the two completes first is used, and the other one
+     * is stopped and its working directory is deleted.
+     *
+     * If simulation agents are connected, then the simulation runs on this computer if a 
+     * process slot is free, and otherwise on the first agent that has a free slot.
+     * If the connection to the agent is lost, then the simulation is run again.
      *
      * @param worDirPre working directory prefix, to be added to current working directory to enable
      *                  parallel simulations
+     * @return the working directory prefix of the simulation that completed, which is
+     *         different from <CODE>worDirPre</CODE> if the duplicate completed first
      * @exception IOException
      * @exception OptimizerException
      * @exception Exception
      */
-    public void run(String worDirPre) throws IOException, OptimizerException, Exception
+    public String run(String worDirPre) throws IOException, OptimizerException, Exception
     {
-	final int iPro = _getThreadNumber();
-	final File proWorDir = new File(OptIni.convertToTemporaryPath(worDir, worDirPre));
-	final String comLin = _updateAndGetCommandLine(worDirPre);
+	return run(worDirPre, Double.POSITIVE_INFINITY);
+    }
+
+    /** Runs the simulation, and stops it if the partial value of its objective function 
+     *  exceeds a bound.
+     *
+     * The bound is only used if a progress delimiter has been set by 
+     * {@link #setProgressDelimiter(String)}, and if the simulation runs on this computer.
+     *
+     * @param worDirPre working directory prefix
+     * @param bound the bound of the objective function, or <CODE>Double.POSITIVE_INFINITY</CODE>
+     * @return the working directory prefix of the simulation that completed, which is
+     *         different from <CODE>worDirPre</CODE> if the duplicate completed first
+     * @exception SimulationBoundException if the simulation has been stopped because
+     *            the partial value of its objective function exceeded <CODE>bound</CODE>
+     * @exception IOException
+     * @exception OptimizerException
+     * @exception Exception
+     */
+    public String run(String worDirPre, double bound) throws IOException, OptimizerException, Exception
+    {
+	lasDur.remove();
+	if ( resReq == null )
+	    return _run(worDirPre, bound);
+	// wait for the resources rather than starting a simulation that fails
 	try{
-	    proWorDir.mkdirs();
+	    resPoo.acquire(resReq);
 	}
-	catch(SecurityException e){
+	catch(InterruptedException e){
 	    String ErrMes =
-		LS + "SecurityException when creating the working directory." + LS +
+		LS + "InterruptedException while waiting for the resources of the simulation" + LS +
 		LS + getCommandDiagnostics(worDirPre) + LS +
-		"Exception message: " + LS + e.getMessage();
+		"Exception message: " + LS + e.getMessage(); 
 	    throw new OptimizerException(ErrMes);
 	}
 	try{
-	    pro[iPro] = Runtime.getRuntime().exec(comLin, null, proWorDir);
-	    ThreadedInputStream errStr = new ThreadedInputStream(pro[iPro].getErrorStream());
-	    errStr.start();
-	    ThreadedInputStream outStr = new ThreadedInputStream(pro[iPro].getInputStream());
-	    outStr.start();
-	    pro[iPro].waitFor();
+	    return _run(worDirPre, bound);
+	}
+	finally{
+	    resPoo.release(resReq);
+	}
+    }
+
+    /** Runs the simulation after the resources have been acquired.
+     *
+     * @param worDirPre working directory prefix
+     * @param bound the bound of the objective function, or <CODE>Double.POSITIVE_INFINITY</CODE>
+     * @return the working directory prefix of the simulation that completed
+     * @exception IOException
+     * @exception OptimizerException
+     * @exception Exception
+     */
+    private String _run(String worDirPre, double bound) throws IOException, OptimizerException, Exception
+    {
+	if ( spoQue != null )
+	    return _runSpool(worDirPre);
+	if ( agSer == null )
+	    return _runLocal(worDirPre, proSlo.acquire(), bound);
+	while ( true ){
+	    int iSlo = proSlo.tryAcquire();
+	    if ( iSlo >= 0 )
+		return _runLocal(worDirPre, iSlo, bound);
+	    final AgentServer.Agent a = agSer.tryAcquire();
+	    if ( a != null ){
+		try{
+		    _runRemote(worDirPre, a);
+		    return worDirPre;
+		}
+		catch(AgentServer.AgentLostException e){
+		    continue; // run the simulation again
+		}
+		finally{
+		    agSer.release(a);
+		}
+	    }
+	    iSlo = proSlo.acquire(AGENT_POLL_INTERVAL);
+	    if ( iSlo >= 0 )
+		return _runLocal(worDirPre, iSlo, bound);
+	}
+    }
+
+    /** Runs the simulation on a simulation agent.
+     *
+     * The simulation input files are sent to the agent, and the simulation
+     * output and log files, and the file of the standard output, are written
+     * to the working directory.
+     *
+     * @param worDirPre working directory prefix
+     * @param agent the agent, which must have a free slot
+     * @exception AgentServer.AgentLostException if the connection to the agent has been lost
+     * @exception SimulationTimeoutException if the simulation exceeded its time limit
+     * @exception OptimizerException if the simulation failed
+     * @exception IOException if the files cannot be read or written
+     * @exception InterruptedException if the thread is interrupted
+     */
+    private void _runRemote(final String worDirPre, final AgentServer.Agent agent)
+	throws AgentServer.AgentLostException, OptimizerException, IOException, InterruptedException{
+	String roo = worDirPoo.getDirectory(worDirPre).getPath();
+	if ( roo.endsWith(FS) )
+	    roo = roo.substring(0, roo.length()-FS.length());
+	final int nInp = OptIni.getNumberOfInputFiles();
+	final String[] inpNam = new String[nInp];
+	final byte[][] inpCon = new byte[nInp][];
+	for (int i = 0; i < nInp; i++){
+	    final File f = new File(OptIni.convertToTemporaryPath(OptIni.getSimInpPat(i), worDirPre),
+				    OptIni.getSimInpFilNam(i));
+	    inpNam[i] = _getRelativePath(roo, f.getPath());
+	    inpCon[i] = Files.readAllBytes(f.toPath());
+	}
+	final int nOut = OptIni.getNumberOfOutputFiles();
+	final int nLog = OptIni.getNumberOfLogFiles();
+	final String proDir = _getPortablePath(roo, OptIni.convertToTemporaryPath(worDir, worDirPre),
+					       SimulationAgent.DIRECTORY);
+	final boolean stdOutRel = ( stdOut != null && !new File(stdOut).isAbsolute() );
+	final String[] resNam = new String[nOut + nLog + ( stdOutRel ? 1 : 0 )];
+	for (int i = 0; i < nOut; i++)
+	    resNam[i] = _getRelativePath(roo, OptIni.convertToTemporaryPath(OptIni.getSimOutPat(i), worDirPre) +
+				      FS + OptIni.getSimOutFilNam(i));
+	for (int i = 0; i < nLog; i++)
+	    resNam[nOut+i] = _getRelativePath(roo, OptIni.convertToTemporaryPath(OptIni.getSimLogPat(i), worDirPre) +
+					   FS + OptIni.getSimLogFilNam(i));
+	if ( stdOutRel )
+	    resNam[nOut+nLog] = _getRelativePath(roo, OptIni.convertToTemporaryPath(worDir, worDirPre) + FS + stdOut);
+	final String[] com = _substituteCommandArray(worDirPre);
+	for (int i = 0; i < com.length; i++)
+	    com[i] = _getPortablePath(roo, com[i], SimulationAgent.DIRECTORY);
+	final double timLim = getTimeout();
+	final AgentServer.Result r = agSer.run(agent, 
+					       new AgentServer.Job(com, proDir, env,
+								   ( stdOut == null ) ? "" : stdOut, timLim,
+								   inpNam, inpCon, resNam));
+	final String diaMes = 
+	    LS + "Simulation agent                    : '" + r.hos + "'." +
+	    LS + "Current command String              : '" + _getCommandLine(com) + "'.";
+	if ( r.sta == SimulationAgent.RESULT_TIMEOUT )
+	    throw new SimulationTimeoutException(LS + "Simulation exceeded its time limit of " + timLim + 
+						 " seconds and has been stopped." + LS + diaMes);
+	if ( r.sta != SimulationAgent.RESULT_EXIT )
+	    throw new OptimizerException(LS + "Exception in executing the simulation program" + LS +
+					 diaMes + LS + "Exception message: " + LS + r.mes);
+	for (int i = 0; i < r.fil.length && i < resNam.length; i++){
+	    if ( r.fil[i] == null )
+		continue; // reported when the results are read
+	    final File f = SimulationAgent.resolve(new File(roo), resNam[i]);
+	    f.getParentFile().mkdirs();
+	    Files.write(f.toPath(), r.fil[i]);
+	}
+	if ( r.ev != 0 ){
+	    final String sem = ( r.mes.length() == 0 ) ? 
+		"Simulation program did not return an error stream." : r.mes;
+	    throw new OptimizerException(LS + "Error in executing the simulation program" +
+					 LS + "Exit value of the simulation program: " + r.ev + diaMes +
+					 LS + "Error stream of simulation program  : " + sem + LS);
+	}
+	_addDuration(r.dur);
+    }
+
+    /** Replaces the root of the temporary directory by a placeholder, so that the
+     *  path can be used on another computer.
+     *
+     * @param roo the root of the temporary directory on this computer
+     * @param path the path, or an argument of the command that may contain paths
+     * @param placeholder the placeholder for the root of the temporary directory
+     * @return the path with the placeholder
+     */
+    private static String _getPortablePath(final String roo, final String path, final String placeholder){
+	return path.equals(roo) ? placeholder : replaceString(path, roo + FS, placeholder + FS);
+    }
+
+    /** Runs the simulation through the spool directory.
+     *
+     * The manifest is written to the temporary directory of the simulation, which is
+     * in the spool directory, and the job is queued. The simulation output and log
+     * files are read from the temporary directory as for simulations on this computer.
+     *
+     * @param worDirPre working directory prefix
+     * @return the working directory prefix
+     * @exception SimulationTimeoutException if the simulation exceeded its time limit
+     * @exception OptimizerException if the simulation failed
+     * @exception IOException if the manifest cannot be written
+     * @exception InterruptedException if the thread is interrupted
+     */
+    private String _runSpool(final String worDirPre)
+	throws OptimizerException, IOException, InterruptedException{
+	final File rooDir = worDirPoo.getDirectory(worDirPre);
+	String roo = rooDir.getPath();
+	if ( roo.endsWith(FS) )
+	    roo = roo.substring(0, roo.length()-FS.length());
+	final String[] com = _substituteCommandArray(worDirPre);
+	final String proDir = OptIni.convertToTemporaryPath(worDir, worDirPre);
+	final Properties man = new Properties();
+	man.setProperty("command.count", String.valueOf(com.length));
+	for (int i = 0; i < com.length; i++)
+	    man.setProperty("command." + i, _getPortablePath(roo, com[i], SpoolWorker.DIRECTORY));
+	man.setProperty("directory", _getPortablePath(roo, proDir, SpoolWorker.DIRECTORY));
+	for (Map.Entry<String, String> e : env.entrySet())
+	    man.setProperty(SpoolWorker.ENVIRONMENT + e.getKey(), e.getValue());
+	if ( stdOut != null )
+	    man.setProperty("standardOutput", _getPortablePath(roo, stdOut, SpoolWorker.DIRECTORY));
+	final double timLim = getTimeout();
+	man.setProperty("timeout", String.valueOf(timLim));
+	final File manFil = new File(rooDir, SpoolWorker.MANIFEST);
+	try(OutputStream os = new FileOutputStream(manFil)){
+	    man.store(os, "GenOpt job");
+	}
+	final File errFil = new File(proDir, ERROR_FILE_NAME);
+	// the slot limits the number of jobs that are queued or running
+	final int iSlo = proSlo.acquire();
+	try{
+	    final Properties r = spoQue.run(_getRelativePath(new File(spoDir).getCanonicalPath(),
+							  rooDir.getCanonicalPath()));
+	    final String sta = r.getProperty("status", "");
+	    if ( sta.equals(SpoolWorker.STATUS_TIMEOUT) )
+		throw new SimulationTimeoutException(LS + "Simulation exceeded its time limit of " + timLim + 
+						     " seconds and has been stopped." + LS + LS +
+						     getCommandDiagnostics(worDirPre));
+	    if ( !sta.equals(SpoolWorker.STATUS_EXIT) )
+		throw new OptimizerException(LS + "Exception in executing the simulation program" + LS +
+					     LS + getCommandDiagnostics(worDirPre) + LS +
+					     "Exception message: " + LS + r.getProperty("message", sta));
+	    final String ev = r.getProperty("exitValue", "");
+	    if ( !ev.equals("0") ){
+		String sem = FileHandler.readTail(errFil, MAX_ERROR_STREAM_LENGTH);
+		if ( sem == null || sem.length() == 0)
+		    sem = "Simulation program did not return an error stream.";
+		throw new OptimizerException(LS + "Error in executing the simulation program" +
+					     LS + "Exit value of the simulation program: " + ev +
+					     LS + "Working directory                   : '" + proDir + "'." +
+					     LS + "Current command String              : '" + _getCommandLine(com) + "'." +
+					     LS + "Error stream of simulation program  : " + sem + LS);
+	    }
+	    _addDuration(Double.parseDouble(r.getProperty("duration", "0")));
+	}
+	finally{
+	    proSlo.release(iSlo);
+	    manFil.delete();
+	    errFil.delete();
+	}
+	return worDirPre;
+    }
+
+    /** Gets the path of a file relative to a directory, so that it can be used on another computer.
+     *
+     * @param roo the directory on this computer
+     * @param path the path of the file on this computer
+     * @return the path relative to the directory, with <CODE>/</CODE> as the separator
+     * @exception OptimizerException if the file is not in the directory
+     */
+    private static String _getRelativePath(final String roo, final String path)
+	throws OptimizerException{
+	if ( path.equals(roo) )
+	    return ".";
+	if ( !path.startsWith(roo + FS) )
+	    throw new OptimizerException("Path '" + path + "' is not in the directory '" + roo + "'." + LS +
+					 "Simulations on other computers can only use files in the directory of the" + LS +
+					 "optimization initialization file, or in a subdirectory of it.");
+	return path.substring(roo.length() + FS.length()).replace(File.separatorChar, '/');
+    }
+
+    /** Runs the simulation program on this computer.
+     *
+     * @param worDirPre working directory prefix
+     * @param iSlo the process slot, which must have been acquired
+     * @param bound the bound of the partial value of the objective function
+     * @return the working directory prefix of the simulation that completed
+     * @exception IOException
+     * @exception OptimizerException
+     * @exception Exception
+     */
+    private String _runLocal(String worDirPre, int iSlo, double bound) throws IOException, OptimizerException, Exception
+    {
+	final Run ori = new Run(worDirPre, iSlo, bound);
+	final double timLim = getTimeout();
+	boolean timedOut = false;
+	String logErr = null;
+	double parVal = Double.NaN;
+	Run dup = null;
+	Run win = ori;
+	try{
+	    ori.start();
+	    if ( timLim <= 0 && speMedFac <= 0 && ori.logTai == null )
+		ori.pro.waitFor();
+	    else{
+		// wait for the original and, if started, the duplicate
+		boolean speculate = ( speMedFac > 0 );
+		final long deadline = ( timLim > 0 ) ? ori.t0 + (long)(1E9*timLim) : Long.MAX_VALUE;
+		final long poll = ( ori.logTai == null ) ? POLL_INTERVAL : LOG_POLL_INTERVAL;
+		while ( true ){
+		    final long wait = Math.max(1, Math.min(poll, (deadline - System.nanoTime())/1000000));
+		    if ( dup == null ){
+			if ( ori.pro.waitFor(wait, TimeUnit.MILLISECONDS) )
+			    break;
+		    }
+		    else{
+			try{
+			    CompletableFuture.anyOf(ori.pro.onExit(), dup.pro.onExit()).get(wait, TimeUnit.MILLISECONDS);
+			}
+			catch(TimeoutException e){} // processes are still running
+			if ( !ori.pro.isAlive() )
+			    break;
+			if ( !dup.pro.isAlive() ){
+			    if ( dup.pro.exitValue() == 0 ){
+				win = dup;
+				break;
+			    }
+			    // the duplicate failed, continue with the original only
+			    dup.release();
+			    _deleteTemporaryDirectory(dup.worDirPre);
+			    dup = null;
+			}
+		    }
+		    if ( ( logErr = ori.checkLog() ) != null )
+			break;
+		    if ( ori.getProgress() > bound ){
+			parVal = ori.getProgress();
+			break;
+		    }
+		    if ( dup != null && dup.checkLog() != null ){
+			// the duplicate failed, continue with the original only
+			dup.release();
+			_deleteTemporaryDirectory(dup.worDirPre);
+			dup = null;
+		    }
+		    if ( System.nanoTime() >= deadline ){
+			timedOut = true;
+			break;
+		    }
+		    if ( speculate && dup == null && _isStraggler(ori) ){
+			dup = _startDuplicate(ori);
+			// only one duplicate is started for each simulation
+			speculate = false;
+		    }
+		}
+	    }
+	    // stop the simulations that did not complete
+	    final boolean failed = ( timedOut || logErr != null || !Double.isNaN(parVal) );
+	    if ( failed || win != ori ){
+		ProcessSlots.destroyTree(ori.pro);
+		ori.pro.waitFor();
+	    }
+	    if ( dup != null && ( failed || win != dup ) ){
+		ProcessSlots.destroyTree(dup.pro);
+		dup.pro.waitFor();
+	    }
 	    
 	    // sleep for some milliseconds
 	    // System.err.print("SimulationStarter: Go to sleep...");
 	    // Thread.sleep((int)(2000*Math.random()));
 	    // Thread.sleep(2000);
 	    // System.err.println("Woke up");
-	    _processProcessOutput(iPro, errStr, proWorDir, comLin);
+	    if ( !failed ){
+		_processProcessOutput(win.iPro, win.pro, win.errFil, win.proWorDir, win.comLin);
+		_addDuration(win.getDuration());
+		_addSlotDuration(win.iPro, win.getDuration());
+	    }
 	}
 	catch(InterruptedException e){
 	    String ErrMes =
@@ -358,37 +1419,308 @@ public class SimulationStarter implements Cloneable
 	    // Otherwise, the system does not release its resources, and
 	    // the exception "java.io.IOException: Too many open files" is
 	    // thrown after a few hundred or thousands of simulations.
+	    ori.release();
+	    if ( dup != null ){
+		dup.release();
+		// delete the working directory of the simulation whose results are not used
+		_deleteTemporaryDirectory( ( win == dup ) ? ori.worDirPre : dup.worDirPre );
+	    }
+	}
+	if ( timedOut ){
+	    String ErrMes =
+		LS + "Simulation exceeded its time limit of " + timLim + " seconds and has been stopped." + LS +
+		LS + getCommandDiagnostics(worDirPre);
+	    throw new SimulationTimeoutException(ErrMes);
+	}
+	if ( logErr != null ){
+	    String ErrMes =
+		LS + "Simulation has been stopped because its log file contains an error message." + LS +
+		logErr + LS + getCommandDiagnostics(worDirPre);
+	    throw new OptimizerException(ErrMes);
+	}
+	if ( !Double.isNaN(parVal) ){
+	    String ErrMes =
+		LS + "Simulation has been stopped because the partial value " + parVal + 
+		" of its objective function exceeded " + bound + "." + LS +
+		LS + getCommandDiagnostics(worDirPre);
+	    throw new SimulationBoundException(ErrMes, parVal);
+	}
+	return win.worDirPre;
+    }
+
+    /** Returns <CODE>true</CODE> if a duplicate of the simulation should be started.
+     *
+     * @param r the running simulation
+     * @return <CODE>true</CODE> if the simulation takes much longer than the other simulations
+     *         and the batch is almost completed
+     */
+    private boolean _isStraggler(final Run r){
+	if ( durSta.size() < MIN_SAMPLES_MEDIAN )
+	    return false;
+	final double elapsed = (System.nanoTime() - r.t0) * 1E-9;
+	return ( elapsed > speMedFac * durSta.getMedian() && 
+		 simExe.getBatchCompletion() >= speBatFra );
+    }
+
+    /** Starts a duplicate of a running simulation on an idle process slot.
+     *
+     * The simulation input files are copied to the working directory of the duplicate.
+     *
+     * @param r the running simulation
+     * @return the duplicate, or <CODE>null</CODE> if no process slot is idle or the 
+     *         duplicate could not be started
+     */
+    private Run _startDuplicate(final Run r){
+	final int iSlo = proSlo.tryAcquire();
+	if ( iSlo < 0 )
+	    return null;
+	final Run dup = new Run(r.worDirPre + DUPLICATE_SUFFIX, iSlo, r.bou);
+	// the duplicate requires its own resources
+	if ( resReq != null ){
+	    if ( !resPoo.tryAcquire(resReq) ){
+		proSlo.release(iSlo);
+		return null;
+	    }
+	    dup.resHel = true;
+	}
+	try{
+	    worDirPoo.prepare(dup.worDirPre);
+	    for (int i = 0; i < OptIni.getNumberOfInputFiles(); i++){
+		final File src = new File(OptIni.convertToTemporaryPath(OptIni.getSimInpPat(i), r.worDirPre),
+					  OptIni.getSimInpFilNam(i));
+		final File des = new File(OptIni.convertToTemporaryPath(OptIni.getSimInpPat(i), dup.worDirPre),
+					  OptIni.getSimInpFilNam(i));
+		des.getParentFile().mkdirs();
+		Files.copy(src.toPath(), des.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	    }
+	    if ( !dup.tryStart() ){ // not enough free memory
+		dup.release();
+		_deleteTemporaryDirectory(dup.worDirPre);
+		return null;
+	    }
+	    return dup;
+	}
+	catch(Exception e){ // the original simulation continues
+	    dup.release();
+	    _deleteTemporaryDirectory(dup.worDirPre);
+	    return null;
+	}
+    }
+
+    /** Deletes the temporary directory of a simulation.
+     *
+     * @param worDirPre working directory prefix of the simulation
+     */
+    private void _deleteTemporaryDirectory(final String worDirPre){
+	FileHandler.deleteDirectory(new File(OptIni.convertToTemporaryPath(OptIni.getOptIniPat(), worDirPre)));
+    }
+
+    /** A process of the simulation program, together with its working directory
+     *  and its process slot.
+      */
+    private class Run
+    {
+	/** Constructor.
+	 *
+	 * @param workingDirectoryPrefix working directory prefix of the simulation
+	 * @param slot the process slot
+	 * @param bound the bound of the partial value of the objective function
+	 */
+	Run(final String workingDirectoryPrefix, final int slot, final double bound){
+	    worDirPre = workingDirectoryPrefix;
+	    iPro = slot;
+	    bou = bound;
+	    proWorDir = new File(OptIni.convertToTemporaryPath(worDir, worDirPre));
+	    String[] comArr = _getCommandArray(worDirPre);
+	    if ( cpuAff != null ){
+		// start the program by the wrapper that sets the processors of the slot
+		final String[] wra = cpuAff.getWrapper(iPro);
+		final String[] a = new String[wra.length + comArr.length];
+		System.arraycopy(wra, 0, a, 0, wra.length);
+		System.arraycopy(comArr, 0, a, wra.length, comArr.length);
+		comArr = a;
+	    }
+	    comLin = _getCommandLine(comArr);
+	    // the partial values are only read if they can stop the simulation
+	    final String del = ( bou < Double.POSITIVE_INFINITY ) ? proDel : null;
+	    if ( logErrChe != null || del != null ){
+		logTai = new LogTail[OptIni.getNumberOfLogFiles()];
+		for (int i = 0; i < logTai.length; i++)
+		    logTai[i] = new LogTail(new File(OptIni.convertToTemporaryPath(OptIni.getSimLogPat(i), worDirPre),
+						     OptIni.getSimLogFilNam(i)), logErrChe, del);
+	    }
+	    // The output streams are redirected to files. This avoids a deadlock of waitFor(),
+	    // which may happen if the simulation program writes a large message,
+	    // without having to start threads that read the streams.
+	    errFil = new File(proWorDir, ERROR_FILE_NAME);
+	    pb = new ProcessBuilder(comArr);
+	    pb.directory(proWorDir);
+	    pb.environment().putAll(env);
+	    pb.redirectError(errFil);
+	    if (stdOut == null)
+		pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+	    else{
+		File f = new File(stdOut);
+		pb.redirectOutput( f.isAbsolute() ? f : new File(proWorDir, stdOut) );
+	    }
+	}
+
+	/** Creates the working directory, waits until there is enough free memory,
+	 *  and starts the process.
+	 *
+	 * @exception OptimizerException if the working directory cannot be created
+	 * @exception IOException if an I/O error occurs when starting the process
+	 * @exception InterruptedException if the thread is interrupted while waiting for memory
+	 */
+	void start() throws OptimizerException, IOException, InterruptedException{
+	    if ( memAdm != null )
+		memTra = memAdm.admit();
+	    _start();
+	}
+
+	/** Starts the process if there is enough free memory.
+	 *
+	 * @return <CODE>true</CODE> if the process has been started, or <CODE>false</CODE>
+	 *         if there is not enough free memory
+	 * @exception OptimizerException if the working directory cannot be created
+	 * @exception IOException if an I/O error occurs when starting the process
+	 */
+	boolean tryStart() throws OptimizerException, IOException{
+	    if ( memAdm != null ){
+		memTra = memAdm.tryAdmit();
+		if ( memTra == null )
+		    return false;
+	    }
+	    _start();
+	    return true;
+	}
+
+	/** Creates the working directory and starts the process.
+	 *
+	 * @exception OptimizerException if the working directory cannot be created
+	 * @exception IOException if an I/O error occurs when starting the process
+	 */
+	private void _start() throws OptimizerException, IOException{
+	    try{
+		proWorDir.mkdirs();
+	    }
+	    catch(SecurityException e){
+		String ErrMes =
+		    LS + "SecurityException when creating the working directory." + LS +
+		    LS + getCommandDiagnostics(worDirPre) + LS +
+		    "Exception message: " + LS + e.getMessage();
+		throw new OptimizerException(ErrMes);
+	    }
+	    t0 = System.nanoTime();
+	    pro = pb.start();
+	    proSlo.setProcess(iPro, pro);
+	    if ( memTra != null )
+		memTra.setProcess(pro);
+	}
+
+	/** Checks the new lines of the log files for error messages.
+	 *
+	 * @return the error message, or <CODE>null</CODE> if no error has been found
+	 * @exception IOException if a log file cannot be read
+	 */
+	String checkLog() throws IOException{
+	    if ( logTai == null )
+		return null;
+	    for (LogTail t : logTai){
+		final String r = t.check();
+		if ( r != null )
+		    return r;
+	    }
+	    return null;
+	}
+
+	/** Gets the largest partial value of the objective function that has been read 
+	 *  by {@link #checkLog()}.
+	 *
+	 * @return the partial value, or <CODE>Double.NaN</CODE> if no value has been read
+	 */
+	double getProgress(){
+	    double r = Double.NaN;
+	    if ( logTai != null ){
+		for (LogTail t : logTai){
+		    if ( Double.isNaN(r) || t.getProgress() > r )
+			r = t.getProgress();
+		}
+	    }
+	    return r;
+	}
+
+	/** Gets the time since the process has been started.
+	 *
+	 * @return the time in seconds
+	 */
+	double getDuration(){
+	    return (System.nanoTime() - t0) * 1E-9;
+	}
+
+	/** Destroys the process if it still exists, releases its slot and 
+	 *  deletes the file with the error stream.
+	 */
+	void release(){
+	    // sample the peak memory before the process is destroyed
+	    if ( memTra != null )
+		memAdm.finished(memTra);
 	    destroyProcess(iPro);
+	    if ( resHel ){
+		resPoo.release(resReq);
+		resHel = false;
+	    }
+	    errFil.delete();
 	}
+
+	/** The working directory prefix */
+	final String worDirPre;
+	/** The process slot */
+	final int iPro;
+	/** The bound of the partial value of the objective function */
+	final double bou;
+	/** The working directory */
+	final File proWorDir;
+	/** The command line, for error reporting */
+	final String comLin;
+	/** The file to which the error stream is written */
+	final File errFil;
+	/** The process builder */
+	final ProcessBuilder pb;
+	/** The process, or <CODE>null</CODE> if it has not been started */
+	Process pro;
+	/** The time when the process has been started, in nanoseconds */
+	long t0;
+	/** The memory of the process, or <CODE>null</CODE> if it is not sampled */
+	MemoryAdmission.Tracker memTra;
+	/** The log files that are checked while the process is running, or <CODE>null</CODE> */
+	LogTail[] logTai;
+	/** Flag, <CODE>true</CODE> if the process holds its own resources, which is the case for a duplicate */
+	boolean resHel;
     }
 
     /////////
     /** Processes the output of the simulation
      *
      * @param iPro the process number
+     * @param pro the process
+     * @param errorFile the file to which the error stream of the process has been written
      * @param proWorDir the process working directory (used for error reporting)
      * @param comLin the command line (used for error reporting)
      * @exception NullPointerException If the user requested GenOpt to stop
      * @exception OptimizerException
      * @exception IOException if the output or error stream cannot be read
      */
-    void _processProcessOutput(int iPro, final ThreadedInputStream errorStream, 
+    void _processProcessOutput(int iPro, final Process pro, final File errorFile, 
 			       final File proWorDir, final String comLin)
 	throws NullPointerException, OptimizerException, IOException{
-	int ev = 0;
-	try { ev = pro[iPro].exitValue(); }
-	catch (NullPointerException e){ // if process was destroyed
-	    // The next line is new in GenOpt 2.0.0 due to Java's Bug Id 4637504 and 4784692.
-	    // Otherwise, the system does not release its resources, and
-	    // the exception "java.io.IOException: Too many open files" is
-	    // thrown after a few hundred or thousands of simulations.
-	    
+	// The process has been removed from its slot if the user stopped GenOpt
+	if (proSlo.getProcess(iPro) == null)
 	    throw new OptimizerException(genopt.GenOpt.USER_STOP_MESSAGE);
-	}
-	// throw any exceptions that may have been stored when reading the error stream
-	errorStream.throwStoredException();
+	final int ev = pro.exitValue();
 	if (ev != 0){
-	    String sem = errorStream.getInputStream();
+	    // only the end of the error stream is reported, since it may be very large
+	    String sem = FileHandler.readTail(errorFile, MAX_ERROR_STREAM_LENGTH);
 	    if ( sem == null || sem.length() == 0)
 		sem = new String("Simulation program did not return an error stream.");
 	    
@@ -411,23 +1743,19 @@ public class SimulationStarter implements Cloneable
     /** Destroys all processes that exists
      */
     public void destroyProcess(){
-	for (int i = 0; i < maxThrPoo; i++)
-	    destroyProcess(i);
+	if (proSlo != null)
+	    proSlo.destroyAll();
+	if (agSer != null)
+	    agSer.cancelAll();
+	if (spoQue != null)
+	    spoQue.cancelAll();
     }
     
-    /** destroys the process if it exists
+    /** destroys the process if it exists, and releases its slot
      * @param iPro number of the process
      */
     public void destroyProcess(int iPro){
-	lock.lock();
-	try{
-	    if (pro[iPro] != null){
-		pro[iPro].destroy();
-		pro[iPro] = null;
-		proFre[iPro].set(true);
-	    }
-	}
-	finally{ lock.unlock(); }
+	proSlo.release(iPro);
     }
     
     /** Sets the working directory.
@@ -439,13 +1767,107 @@ public class SimulationStarter implements Cloneable
     }
 
     protected String CommandLine;
+    /** The program and its arguments, as obtained from the command line */
+    protected String[] comArg;
+    /** Flags that are <CODE>true</CODE> for arguments that contain a path of the working directory */
+    protected boolean[] comArgWorDir;
+    /** The program and its arguments with canonical paths, for each working directory prefix */
+    private Map<String, String[]> comArrCan;
+    /** Environment variables for the simulation program */
+    protected Map<String, String> env;
     protected boolean PrombtFileExtension;
     protected String worDir;
     protected OptimizationIni OptIni;
-    protected Process[] pro;
-    /** Array with boolean flag, flag is <tt>true</tt> if this process number can be used */
-    protected AtomicBoolean[] proFre;
-    /** The maximum number of threads in the pool */
-    protected int maxThrPoo;
-    protected ReentrantLock lock;
+    /** The process slots, allocated by the {@link SimulationExecutor} */
+    protected ProcessSlots proSlo;
+    /** The simulation executor */
+    protected SimulationExecutor simExe;
+    /** The file for the standard output, or <CODE>null</CODE> if it is discarded */
+    protected String stdOut;
+    /** The scratch directory, or <CODE>null</CODE> */
+    protected String scrDir;
+    /** The canonical path names of the files that are linked into each working directory */
+    protected String[] staFil;
+    /** The pool with the working directories */
+    protected WorkingDirectoryPool worDirPoo;
+    /** The simulation that is evaluated in GenOpt's Java virtual machine, or <CODE>null</CODE> */
+    protected InProcessSimulation inProSim;
+    /** The class name of the simulation that is evaluated in GenOpt's Java virtual machine */
+    protected String inProSimNam;
+    /** Flag, <CODE>true</CODE> if the simulation program runs as a persistent worker */
+    protected boolean perWor;
+    /** The number of simulations after which a worker is replaced, or <CODE>0</CODE> */
+    protected int worMaxEva;
+    /** The workers that are idle */
+    private Deque<SimulationWorker> worIdl;
+    /** All workers that are running */
+    private List<SimulationWorker> worAll;
+    /** The port on which GenOpt waits for simulation agents, or <CODE>0</CODE> */
+    protected int agPor;
+    /** The address on which GenOpt waits for simulation agents, or an empty string */
+    protected String agAdd;
+    /** The token that the simulation agents must send */
+    private String agTok;
+    /** The server that runs simulations on agents, or <CODE>null</CODE> */
+    protected AgentServer agSer;
+    /** The spool directory, or <CODE>null</CODE> */
+    protected String spoDir;
+    /** The command that submits a batch of jobs to the spool directory, or an empty string */
+    protected String subCom;
+    /** The maximum number of jobs that are submitted together */
+    protected int jobArrSiz;
+    /** The queue of the spool directory, or <CODE>null</CODE> */
+    protected SpoolQueue spoQue;
+    /** The command that sets the processors of a simulation, or an empty string */
+    protected String cpuAffWra;
+    /** The processors of the process slots, or <CODE>null</CODE> */
+    protected CpuAffinity cpuAff;
+    /** The memory in megabytes that is kept free when simulations are started, or a negative number */
+    protected double memMar;
+    /** The admission control for memory, or <CODE>null</CODE> */
+    protected MemoryAdmission memAdm;
+    /** The error checker for the log files of running simulations, or <CODE>null</CODE> */
+    protected ErrorChecker logErrChe;
+    /** The delimiter of the partial value of the objective function in the log files, or <CODE>null</CODE> */
+    protected String proDel;
+    /** The names of the resources that each simulation requires, separated by white space */
+    protected String resNam;
+    /** The resources, or <CODE>null</CODE> */
+    protected ResourcePool resPoo;
+    /** The number of tokens of each resource that a simulation requires, or <CODE>null</CODE> */
+    protected Map<String, Integer> resReq;
+    /** The number of simulations of each process slot */
+    private int[] sloNum;
+    /** The total duration of the simulations of each process slot, in seconds */
+    private double[] sloDur;
+
+    /** The time limit in seconds, or <CODE>0</CODE> if there is none */
+    protected double timOut;
+    /** The time limit as a factor of the median duration, or <CODE>0</CODE> if there is none */
+    protected double timOutMedFac;
+    /** Flag, <CODE>true</CODE> if a simulation that exceeded its time limit may be evaluated a second time */
+    protected boolean retTimOut;
+    /** The durations of the simulations that completed successfully */
+    protected DurationStatistics durSta;
+    /** The duration of the simulation that has been run last by each thread */
+    private ThreadLocal<Double> lasDur;
+    /** Factor for the median duration after which a duplicate is started, or <CODE>0</CODE> */
+    protected double speMedFac;
+    /** Fraction of the batch that must have completed before a duplicate is started */
+    protected double speBatFra;
+
+    /** Minimum number of simulations that must have completed before the median duration is used */
+    public final static int MIN_SAMPLES_MEDIAN = 3;
+    /** Suffix of the working directory prefix of a duplicate simulation */
+    protected final static String DUPLICATE_SUFFIX = "-duplicate";
+    /** Interval in milliseconds at which running simulations are checked */
+    protected final static long POLL_INTERVAL = 1000;
+    /** Number of milliseconds to wait for a process slot before checking whether an agent has a free slot */
+    protected final static long AGENT_POLL_INTERVAL = 100;
+    /** Number of milliseconds between two checks of the log files of a running simulation */
+    protected final static long LOG_POLL_INTERVAL = 200;
+    /** Name of the file in the working directory to which the error stream is written */
+    protected final static String ERROR_FILE_NAME = "GenOpt-stderr.txt";
+    /** Maximum number of bytes of the error stream that are reported */
+    protected final static int MAX_ERROR_STREAM_LENGTH = 8192;
 }
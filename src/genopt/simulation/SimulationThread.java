@@ -8,8 +8,9 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 /** Object for creating a thread that executes a simulation.
   *
-  * The method {@link genopt.algorithm.Optimizer#getF(Point[], boolean)}
-  * makes instances of this class to parallelize the simulations.
+  * The methods {@link genopt.algorithm.Optimizer#getF(Point[], boolean)}
+  * and {@link genopt.algorithm.Optimizer#submit(Point)}
+  * make instances of this class to parallelize the simulations.
   * 
   * <P><I>This project was carried out at:</I>
   * <UL><LI><A HREF="http://www.lbl.gov">
@@ -84,10 +85,31 @@ public class SimulationThread implements Runnable
      * @param poi the point to be evaluated
      */
     public SimulationThread(Optimizer optimizer, Point poi){
+	this(optimizer, poi, new AtomicInteger(0));
+    }
+
+    /** Constructor.
+     *
+     * Threads that share the same exception counter skip their simulation
+     * if any of them caught an exception before it started.
+     *
+     * @param optimizer reference to the optimizer instance
+     * @param poi the point to be evaluated
+     * @param exceptionCounter counter for the exceptions of all threads of the same batch
+     */
+    public SimulationThread(Optimizer optimizer, Point poi, AtomicInteger exceptionCounter){
 	opt = optimizer;
 	x = poi;
 	exc = null;
-	iExc = new AtomicInteger(0);
+	iExc = exceptionCounter;
+    }
+
+    /** Gets the point that is evaluated by this thread.
+     *
+     * @return the point that is evaluated by this thread
+     */
+    public Point getPoint(){
+	return x;
     }
 
     /** Runs the simulation.
@@ -108,7 +130,6 @@ public class SimulationThread implements Runnable
 	    opt.println("Skipping evaluation of simulation " + 
 			x.getSimulationNumber() + " because of previous simulation error.");
 	}
-	Optimizer.done.countDown(); // count down the count down latch
     }
 
     /** Throws all exceptions that have been catched when running 
@@ -137,7 +158,7 @@ public class SimulationThread implements Runnable
     /** The reference to the GenOpt Optimizer instance */
     protected Optimizer opt;
     /** The number of exceptions that have been accumulated */
-    protected static AtomicInteger iExc;
+    protected AtomicInteger iExc;
     /** The <b>SimulationInputException</b> exception */
     protected SimulationInputException simInpExc;
     /** The <b>OptimizerException</b> exception */
@@ -0,0 +1,268 @@
+package genopt.simulation;
+
+import genopt.io.FileHandler;
+import genopt.lang.OptimizerException;
+import java.io.*;
+import java.util.StringTokenizer;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+
+/** Object that represents a simulation program that runs as a persistent worker
+  * and evaluates several simulations.
+  *
+  * For each simulation, GenOpt writes one line to the standard input of the worker.
+  * The line contains the parameters as <CODE>name=value</CODE>, separated by a space.
+  * The worker must write one line to its standard output that contains the values of
+  * the objective functions, separated by white space, or a line that starts with
+  * <CODE>ERROR</CODE> followed by an error message if the simulation failed.
+  * The worker must not write anything else to its standard output.
+  * When GenOpt closes the standard input of the worker, the worker must terminate.
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+public class SimulationWorker
+{
+    /** Constructor. Starts the worker.
+     *
+     * @param processBuilder the process builder of the worker
+     * @param dirName the name of the temporary directory of the worker
+     * @param errorFile the file to which the error stream of the worker is written
+     * @param maximumEvaluations the number of simulations after which the worker
+     *        is replaced, or <CODE>0</CODE> if it is not replaced
+     * @exception IOException if the worker cannot be started
+     */
+    public SimulationWorker(ProcessBuilder processBuilder, String dirName, File errorFile,
+			    int maximumEvaluations)
+	throws IOException{
+	dirNam = dirName;
+	errFil = errorFile;
+	maxEva = maximumEvaluations;
+	nEva = 0;
+	errRep = false;
+	pro = processBuilder.start();
+	in  = new BufferedWriter(new OutputStreamWriter(pro.getOutputStream()));
+	out = new BufferedReader(new InputStreamReader(pro.getInputStream()));
+    }
+
+    /** Gets the process of the worker.
+     *
+     * @return the process
+     */
+    public Process getProcess(){
+	return pro;
+    }
+
+    /** Gets the name of the temporary directory of the worker.
+     *
+     * @return the name of the temporary directory
+     */
+    public String getDirectoryName(){
+	return dirNam;
+    }
+
+    /** Returns <CODE>true</CODE> if the worker can evaluate another simulation.
+     *
+     * @return <CODE>true</CODE> if the worker is running and has not reached
+     *         its maximum number of simulations
+     */
+    public boolean isUsable(){
+	return pro.isAlive() && ( maxEva == 0 || nEva < maxEva );
+    }
+
+    /** Returns <CODE>true</CODE> if the worker answered the last simulation
+     *  with an error message, in which case it can evaluate further simulations.
+     *
+     * @return <CODE>true</CODE> if the worker reported an error for the last simulation
+     */
+    public boolean hasReportedError(){
+	return errRep;
+    }
+
+    /** Evaluates a simulation.
+     *
+     * @param request the line with the parameters
+     * @param timeout the time limit in seconds, or <CODE>0</CODE>
+     * @return the values of the objective functions
+     * @exception SimulationTimeoutException if the worker exceeded the time limit,
+     *            in which case it has been destroyed
+     * @exception OptimizerException if the worker reported an error, terminated, or
+     *            wrote a line that cannot be parsed
+     * @exception IOException if an I/O error occurs
+     */
+    public double[] evaluate(final String request, final double timeout)
+	throws SimulationTimeoutException, OptimizerException, IOException{
+	nEva++;
+	errRep = false;
+	TimerTask wat = null;
+	final boolean[] timedOut = new boolean[]{false};
+	if ( timeout > 0 ){
+	    wat = new TimerTask(){
+		    public void run(){
+			synchronized(timedOut){ timedOut[0] = true; }
+			ProcessSlots.destroyTree(pro);
+		    }
+		};
+	    WATCHDOG.schedule(wat, (long)(1000*timeout));
+	}
+	String lin;
+	try{
+	    in.write(request);
+	    in.newLine();
+	    in.flush();
+	    lin = out.readLine();
+	}
+	catch(IOException e){
+	    lin = null; // the worker terminated
+	}
+	finally{
+	    if ( wat != null )
+		wat.cancel();
+	}
+	synchronized(timedOut){
+	    if ( timedOut[0] )
+		throw new SimulationTimeoutException(LS + "Simulation worker exceeded the time limit of " + timeout + 
+						     " seconds and has been stopped.");
+	}
+	if ( lin == null ){
+	    // wait briefly so that the error stream is complete
+	    try{ pro.waitFor(CLOSE_WAIT, TimeUnit.SECONDS); }
+	    catch(InterruptedException e){ Thread.currentThread().interrupt(); }
+	    String sem = FileHandler.readTail(errFil, SimulationStarter.MAX_ERROR_STREAM_LENGTH);
+	    if ( sem == null || sem.length() == 0 )
+		sem = "Simulation worker did not return an error stream.";
+	    throw new OptimizerException(LS + "Simulation worker terminated unexpectedly." + LS +
+					 "Error stream of simulation worker: " + sem + LS);
+	}
+	if ( lin.startsWith(ERROR) ){
+	    errRep = true;
+	    throw new OptimizerException(LS + "Simulation worker reported an error: " +
+					 lin.substring(ERROR.length()).trim());
+	}
+	final StringTokenizer st = new StringTokenizer(lin);
+	final double[] r = new double[st.countTokens()];
+	for (int i = 0; i < r.length; i++){
+	    final String tok = st.nextToken();
+	    try{
+		r[i] = Double.parseDouble(tok);
+	    }
+	    catch(NumberFormatException e){
+		throw new OptimizerException(LS + "Cannot parse '" + tok + 
+					     "' in the output of the simulation worker: '" + lin + "'.");
+	    }
+	}
+	return r;
+    }
+
+    /** Stops the worker by closing its standard input, and destroys it
+     *  if it does not terminate.
+     */
+    public void close(){
+	try{
+	    in.close();
+	    if ( pro.waitFor(CLOSE_WAIT, TimeUnit.SECONDS) )
+		return;
+	}
+	catch(IOException e){} // the worker already terminated
+	catch(InterruptedException e){
+	    Thread.currentThread().interrupt();
+	}
+	destroy();
+    }
+
+    /** Destroys the worker and all its descendants.
+     */
+    public void destroy(){
+	ProcessSlots.destroyTree(pro);
+	try{ out.close(); }
+	catch(IOException e){}
+    }
+
+    /** System dependent line separator */
+    private final static String LS = System.getProperty("line.separator");
+    /** Start of a line that reports an error */
+    public final static String ERROR = "ERROR";
+    /** Number of seconds to wait for a worker to terminate */
+    private final static long CLOSE_WAIT = 5;
+    /** Timer that stops workers that exceeded their time limit */
+    private final static Timer WATCHDOG = new Timer("GenOpt-worker-watchdog", true);
+
+    /** The process of the worker */
+    protected Process pro;
+    /** The standard input of the worker */
+    protected BufferedWriter in;
+    /** The standard output of the worker */
+    protected BufferedReader out;
+    /** The name of the temporary directory of the worker */
+    protected String dirNam;
+    /** The file to which the error stream is written */
+    protected File errFil;
+    /** The number of simulations after which the worker is replaced, or <CODE>0</CODE> */
+    protected int maxEva;
+    /** The number of simulations that have been sent to the worker */
+    protected int nEva;
+    /** Flag, <CODE>true</CODE> if the worker reported an error for the last simulation */
+    private boolean errRep;
+}
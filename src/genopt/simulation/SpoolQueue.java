@@ -0,0 +1,473 @@
+package genopt.simulation;
+
+import genopt.io.FileHandler;
+import genopt.lang.OptimizerException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.StringTokenizer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Object that runs simulations through a spool directory, which is shared
+  * with the computers of a cluster.
+  *
+  * The jobs are written to the spool directory as described in {@link SpoolWorker}.
+  * If a submit command is specified, then it is called for each batch of jobs,
+  * for example to submit a job array to a batch scheduler whose tasks
+  * start a {@link SpoolWorker}. Otherwise, the jobs are claimed by workers that
+  * have been started independently of GenOpt.
+  * Completed jobs are detected with a <CODE>WatchService</CODE> and, since this
+  * does not work on all network file systems, by checking the spool directory
+  * at regular intervals.
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+public class SpoolQueue
+{
+    /** Constructor.
+     *
+     * @param spoolDirectory the spool directory
+     * @param name the name of the optimization run, which is unique in the spool directory
+     * @param submitCommand the command that submits a batch of jobs, or an empty string
+     *        if the jobs are claimed by workers that are started independently of GenOpt
+     * @param jobArraySize the maximum number of jobs that are submitted together
+     * @param workingDirectory the working directory of the submit command
+     * @param environment the environment variables of the submit command
+     * @exception OptimizerException if the directories of the spool directory cannot be created
+     */
+    public SpoolQueue(File spoolDirectory, String name, String submitCommand, int jobArraySize,
+		      File workingDirectory, Map<String, String> environment)
+	throws OptimizerException{
+	assert jobArraySize > 0 : "jobArraySize must be bigger than 0";
+	spoDir = spoolDirectory;
+	nam = name;
+	subCom = submitCommand;
+	jobArrSiz = jobArraySize;
+	worDir = workingDirectory;
+	env = environment;
+	queDir = new File(spoDir, SpoolWorker.QUEUE);
+	claDir = new File(spoDir, SpoolWorker.CLAIMED);
+	donDir = new File(spoDir, SpoolWorker.DONE);
+	queDir.mkdirs();
+	claDir.mkdirs();
+	donDir.mkdirs();
+	if ( !queDir.isDirectory() || !claDir.isDirectory() || !donDir.isDirectory() )
+	    throw new OptimizerException("Cannot create the directories of the spool directory '" +
+					 spoDir.getPath() + "'.");
+	pen = new ConcurrentHashMap<String, CompletableFuture<Properties>>();
+	lea = new HashMap<String, long[]>();
+	nexId = new AtomicLong(0);
+	nBat = 0;
+	closed = false;
+	batQue = new LinkedBlockingQueue<String>();
+	watThr = new Thread("GenOpt-spool-watcher"){
+		public void run(){
+		    _watch();
+		}
+	    };
+	watThr.setDaemon(true);
+	watThr.start();
+	if ( subCom.length() > 0 ){
+	    subThr = new Thread("GenOpt-spool-submitter"){
+		    public void run(){
+			_submit();
+		    }
+		};
+	    subThr.setDaemon(true);
+	    subThr.start();
+	}
+	else
+	    subThr = null;
+    }
+
+    /** Queues a job and waits until it completed.
+     *
+     * @param jobDirectory the job directory, relative to the spool directory
+     * @return the result of the job, as written by {@link SpoolWorker}
+     * @exception OptimizerException if the job cannot be queued or submitted
+     * @exception InterruptedException if the thread is interrupted, in which case
+     *            the job is stopped
+     */
+    public Properties run(String jobDirectory)
+	throws OptimizerException, InterruptedException{
+	final String tok = String.format("%s-job-%08d", nam, nexId.incrementAndGet());
+	final CompletableFuture<Properties> f = new CompletableFuture<Properties>();
+	pen.put(tok, f);
+	try{
+	    SpoolWorker.writeAtomically(new File(queDir, tok), 
+					jobDirectory.getBytes(StandardCharsets.UTF_8));
+	}
+	catch(IOException e){
+	    pen.remove(tok);
+	    throw new OptimizerException("Cannot queue job '" + tok + "' in '" + queDir.getPath() + "': " +
+					 e.getMessage());
+	}
+	if ( subThr != null )
+	    batQue.add(tok);
+	try{
+	    return f.get();
+	}
+	catch(ExecutionException e){
+	    throw new OptimizerException(e.getCause().getMessage());
+	}
+	catch(InterruptedException e){
+	    // the job may have been queued again under another name
+	    for (Map.Entry<String, CompletableFuture<Properties>> en : pen.entrySet()){
+		if ( en.getValue() == f && pen.remove(en.getKey()) != null )
+		    _cancel(en.getKey());
+	    }
+	    throw e;
+	}
+    }
+
+    /** Stops all jobs.
+     */
+    public void cancelAll(){
+	for (String tok : pen.keySet()){
+	    final CompletableFuture<Properties> f = pen.remove(tok);
+	    if ( f != null ){
+		_cancel(tok);
+		f.completeExceptionally(new OptimizerException(genopt.GenOpt.USER_STOP_MESSAGE));
+	    }
+	}
+    }
+
+    /** Stops the threads of this object, and stops all jobs that did not complete.
+     */
+    public void close(){
+	closed = true;
+	watThr.interrupt();
+	if ( subThr != null )
+	    subThr.interrupt();
+	cancelAll();
+	for (int i = 1; i <= nBat; i++)
+	    new File(spoDir, nam + "-batch-" + i + ".txt").delete();
+    }
+
+    /** Removes a job from the queue, or stops it if it has been claimed.
+     *
+     * @param tok the name of the job
+     */
+    private void _cancel(final String tok){
+	new File(queDir, tok).delete();
+	// the worker stops the simulation when this file has been deleted
+	new File(claDir, tok).delete();
+    }
+
+    /** Waits for the files that show that jobs completed, and completes their futures.
+     */
+    private void _watch(){
+	WatchService ws = null;
+	try{
+	    ws = FileSystems.getDefault().newWatchService();
+	    donDir.toPath().register(ws, StandardWatchEventKinds.ENTRY_CREATE);
+	}
+	catch(IOException | UnsupportedOperationException e){
+	    ws = null; // only check the directory at regular intervals
+	}
+	try{
+	    while ( !closed ){
+		_scan();
+		_checkLeases();
+		if ( ws == null )
+		    Thread.sleep(SCAN_INTERVAL);
+		else{
+		    final WatchKey k = ws.poll(SCAN_INTERVAL, TimeUnit.MILLISECONDS);
+		    if ( k != null ){
+			k.pollEvents();
+			k.reset();
+		    }
+		}
+	    }
+	}
+	catch(InterruptedException e){} // the queue has been closed
+	finally{
+	    if ( ws != null ){
+		try{ ws.close(); }
+		catch(IOException e){}
+	    }
+	}
+    }
+
+    /** Completes the futures of the jobs that completed.
+     */
+    private void _scan(){
+	final String[] don = donDir.list();
+	if ( don == null )
+	    return;
+	for (int i = 0; i < don.length; i++){
+	    if ( !pen.containsKey(don[i]) ){
+		// a job of this optimization run that has been stopped or queued again
+		if ( don[i].startsWith(nam + "-job-") )
+		    new File(donDir, don[i]).delete();
+		continue;
+	    }
+	    final File f = new File(donDir, don[i]);
+	    final Properties res = new Properties();
+	    try(InputStream is = new FileInputStream(f)){
+		res.load(is);
+	    }
+	    catch(IOException e){
+		continue; // try again at the next scan
+	    }
+	    f.delete();
+	    final CompletableFuture<Properties> fut = pen.remove(don[i]);
+	    if ( fut != null )
+		fut.complete(res);
+	}
+    }
+
+    /** Queues the claimed jobs again whose worker stopped updating the modification time
+     *  of the file of the job, for example because the worker has been killed by the batch
+     *  scheduler or its computer failed.
+     *
+     * The modification time is only compared with earlier values, and not with the clock of
+     * this computer, as the clocks of the computers of a cluster may differ.
+     */
+    private void _checkLeases(){
+	final long now = System.nanoTime();
+	for (String tok : pen.keySet()){
+	    final long mod = new File(claDir, tok).lastModified();
+	    if ( mod == 0 ){ // the job has not been claimed, or it completed
+		lea.remove(tok);
+		continue;
+	    }
+	    final long[] l = lea.get(tok);
+	    if ( l == null || l[0] != mod )
+		lea.put(tok, new long[] { mod, now });
+	    else if ( (now - l[1]) * 1E-9 > SpoolWorker.LEASE_TIMEOUT ){
+		lea.remove(tok);
+		_requeue(tok);
+	    }
+	}
+	lea.keySet().retainAll(pen.keySet());
+    }
+
+    /** Queues a claimed job again under a new name.
+     *
+     * The new name ensures that the result of the previous worker, if it is still
+     * running, is not used. This worker stops the simulation as the file in 
+     * <CODE>claimed</CODE> is deleted.
+     *
+     * @param tok the name of the job
+     */
+    private void _requeue(final String tok){
+	final File claTok = new File(claDir, tok);
+	final byte[] job;
+	try{
+	    job = Files.readAllBytes(claTok.toPath());
+	}
+	catch(IOException e){
+	    return; // the job completed meanwhile
+	}
+	final CompletableFuture<Properties> f = pen.remove(tok);
+	if ( f == null )
+	    return;
+	final String newTok = String.format("%s-job-%08d", nam, nexId.incrementAndGet());
+	pen.put(newTok, f);
+	claTok.delete();
+	try{
+	    SpoolWorker.writeAtomically(new File(queDir, newTok), job);
+	}
+	catch(IOException e){
+	    pen.remove(newTok);
+	    f.completeExceptionally(new OptimizerException("Cannot queue job '" + newTok + "' in '" + 
+							   queDir.getPath() + "' again after its worker stopped: " +
+							   e.getMessage()));
+	    return;
+	}
+	if ( subThr != null )
+	    batQue.add(newTok);
+    }
+
+    /** Collects the queued jobs into batches, and calls the submit command for each batch.
+     */
+    private void _submit(){
+	try{
+	    while ( !closed ){
+		final List<String> bat = new ArrayList<String>();
+		bat.add(batQue.take());
+		// wait briefly for the other jobs of the same iteration of the optimization algorithm
+		final long deadline = System.nanoTime() + SUBMIT_DELAY * 1000000L;
+		while ( bat.size() < jobArrSiz ){
+		    final String tok = batQue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		    if ( tok == null )
+			break;
+		    bat.add(tok);
+		}
+		_submitBatch(bat);
+	    }
+	}
+	catch(InterruptedException e){} // the queue has been closed
+    }
+
+    /** Calls the submit command for a batch of jobs.
+     *
+     * If the command fails, then the jobs of the batch fail.
+     *
+     * @param bat the names of the jobs
+     * @exception InterruptedException if the thread is interrupted
+     */
+    private void _submitBatch(final List<String> bat)
+	throws InterruptedException{
+	nBat++;
+	final File lisFil = new File(spoDir, nam + "-batch-" + nBat + ".txt");
+	final File logFil = new File(spoDir, nam + "-submit.log");
+	String mes = null;
+	try{
+	    String lis = "";
+	    for (String tok : bat)
+		lis += tok + LS;
+	    SpoolWorker.writeAtomically(lisFil, lis.getBytes(StandardCharsets.UTF_8));
+	    String com = SimulationStarter.replaceString(subCom, "%GenOpt.Spool.Directory%", 
+							 spoDir.getAbsolutePath());
+	    com = SimulationStarter.replaceString(com, "%GenOpt.Spool.NumberOfJobs%", String.valueOf(bat.size()));
+	    com = SimulationStarter.replaceString(com, "%GenOpt.Spool.JobList%", lisFil.getAbsolutePath());
+	    final StringTokenizer st = new StringTokenizer(com);
+	    final String[] arg = new String[st.countTokens()];
+	    for (int i = 0; i < arg.length; i++)
+		arg[i] = st.nextToken();
+	    final ProcessBuilder pb = new ProcessBuilder(arg);
+	    pb.directory(worDir);
+	    pb.environment().putAll(env);
+	    pb.redirectErrorStream(true);
+	    pb.redirectOutput(ProcessBuilder.Redirect.appendTo(logFil));
+	    final int ev = pb.start().waitFor();
+	    if ( ev != 0 )
+		mes = "Submit command '" + com + "' failed with exit value " + ev + "." + LS +
+		    "Output of submit command: " + FileHandler.readTail(logFil, SimulationStarter.MAX_ERROR_STREAM_LENGTH);
+	}
+	catch(IOException e){
+	    mes = "Cannot call submit command '" + subCom + "': " + e.getMessage();
+	}
+	if ( mes == null )
+	    return;
+	for (String tok : bat){
+	    new File(queDir, tok).delete();
+	    final CompletableFuture<Properties> f = pen.remove(tok);
+	    if ( f != null )
+		f.completeExceptionally(new OptimizerException(LS + mes));
+	}
+    }
+
+    /** System dependent line separator */
+    private final static String LS = System.getProperty("line.separator");
+    /** Number of milliseconds between two checks of the spool directory */
+    private final static long SCAN_INTERVAL = 1000;
+    /** Number of milliseconds to wait for more jobs before a batch is submitted */
+    private final static long SUBMIT_DELAY = 500;
+
+    /** The spool directory */
+    protected File spoDir;
+    /** The name of the optimization run */
+    protected String nam;
+    /** The submit command, or an empty string */
+    protected String subCom;
+    /** The maximum number of jobs that are submitted together */
+    protected int jobArrSiz;
+    /** The working directory of the submit command */
+    protected File worDir;
+    /** The environment variables of the submit command */
+    protected Map<String, String> env;
+    /** The directory with the jobs that have not been claimed */
+    protected File queDir;
+    /** The directory with the jobs that have been claimed */
+    protected File claDir;
+    /** The directory with the jobs that completed */
+    protected File donDir;
+    /** The jobs that did not complete, by their name */
+    private Map<String, CompletableFuture<Properties>> pen;
+    /** The modification time of the file of each claimed job, and the time when it last changed, 
+	as returned by <CODE>System.nanoTime()</CODE>. This is only used by the thread that 
+	detects completed jobs. */
+    private Map<String, long[]> lea;
+    /** The number of the last job */
+    private AtomicLong nexId;
+    /** The number of batches that have been submitted */
+    private volatile int nBat;
+    /** Flag, <CODE>true</CODE> if the queue has been closed */
+    private volatile boolean closed;
+    /** The jobs that have not been submitted */
+    private BlockingQueue<String> batQue;
+    /** The thread that detects completed jobs */
+    private Thread watThr;
+    /** The thread that calls the submit command, or <CODE>null</CODE> */
+    private Thread subThr;
+}
@@ -0,0 +1,351 @@
+package genopt.simulation;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/** Program that runs the simulations of a spool directory, which is
+  * shared by GenOpt and the computers of a cluster.
+  *
+  * GenOpt writes each simulation to a job directory in the spool directory,
+  * which contains the simulation input files, the static files and the manifest
+  * <CODE>GenOpt-job.properties</CODE>. It then writes a file with the path of the
+  * job directory, relative to the spool directory, to the subdirectory
+  * <CODE>queue</CODE>. A worker claims a job by moving this file to the
+  * subdirectory <CODE>claimed</CODE>, which is an atomic rename that succeeds
+  * for only one worker. After the simulation program terminated, the worker writes
+  * a file with the same name to the subdirectory <CODE>done</CODE>, which GenOpt
+  * detects, and deletes the file in <CODE>claimed</CODE>. If GenOpt deletes the
+  * file in <CODE>claimed</CODE>, then the worker stops the simulation.
+  * While the simulation runs, the worker updates the modification time of the file
+  * in <CODE>claimed</CODE> at regular intervals. If the modification time does not
+  * change for <CODE>LEASE_TIMEOUT</CODE> seconds, for example because the worker
+  * has been killed by the batch scheduler or its computer failed, then GenOpt
+  * queues the simulation again.
+  *
+  * The worker is started with
+  * <PRE>
+  *   java -classpath genopt.jar genopt.simulation.SpoolWorker spoolDirectory [jobs [idleTime]]
+  * </PRE>
+  * It terminates after it ran <CODE>jobs</CODE> simulations (default: no limit), or
+  * after no job has been queued for <CODE>idleTime</CODE> seconds (default: 60).
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+public class SpoolWorker
+{
+    /** Constructor.
+     *
+     * @param spoolDirectory the spool directory
+     * @param maximumJobs the number of simulations after which the worker terminates,
+     *        or <CODE>0</CODE> for no limit
+     * @param idleTime the time in seconds after which the worker terminates
+     *        if no job has been queued
+     */
+    public SpoolWorker(File spoolDirectory, int maximumJobs, double idleTime){
+	spoDir = spoolDirectory;
+	maxJob = maximumJobs;
+	idlTim = idleTime;
+    }
+
+    /** Main routine.
+     *
+     * @param args the spool directory, and optionally the number of jobs and the idle time
+     */
+    public static void main(String[] args){
+	if ( args.length < 1 || args.length > 3 ){
+	    System.err.println("Usage: java -classpath genopt.jar " + SpoolWorker.class.getName() +
+			       " spoolDirectory [jobs [idleTime]]");
+	    System.exit(1);
+	}
+	try{
+	    final int maxJob = ( args.length > 1 ) ? Integer.parseInt(args[1]) : 0;
+	    final double idlTim = ( args.length > 2 ) ? Double.parseDouble(args[2]) : DEFAULT_IDLE_TIME;
+	    new SpoolWorker(new File(args[0]), maxJob, idlTim).run();
+	    System.exit(0);
+	}
+	catch(Exception e){
+	    System.err.println("GenOpt spool worker: " + e.getMessage());
+	    System.exit(1);
+	}
+    }
+
+    /** Claims and runs simulations until the maximum number of jobs or the idle time is reached.
+     *
+     * @return the number of simulations that have been run
+     * @exception IOException if the spool directory does not exist
+     * @exception InterruptedException if the thread is interrupted
+     */
+    public int run()
+	throws IOException, InterruptedException{
+	if ( !spoDir.isDirectory() )
+	    throw new IOException("Spool directory '" + spoDir.getPath() + "' does not exist.");
+	// the worker may be started before GenOpt created the directories
+	final File queDir = new File(spoDir, QUEUE);
+	final File claDir = new File(spoDir, CLAIMED);
+	queDir.mkdirs();
+	claDir.mkdirs();
+	new File(spoDir, DONE).mkdirs();
+	int nJob = 0;
+	long idlSta = System.nanoTime();
+	while ( maxJob == 0 || nJob < maxJob ){
+	    final File claTok = _claim(queDir, claDir);
+	    if ( claTok != null ){
+		_runJob(claTok);
+		nJob++;
+		idlSta = System.nanoTime();
+	    }
+	    else if ( (System.nanoTime() - idlSta) * 1E-9 >= idlTim )
+		break;
+	    else
+		Thread.sleep(POLL_INTERVAL);
+	}
+	return nJob;
+    }
+
+    /** Claims the oldest job of the queue.
+     *
+     * @param queDir the directory of the queue
+     * @param claDir the directory of the claimed jobs
+     * @return the file of the claimed job, or <CODE>null</CODE> if no job could be claimed
+     */
+    private static File _claim(final File queDir, final File claDir){
+	final String[] nam = queDir.list();
+	if ( nam == null )
+	    return null;
+	// the names contain the number of the job, which is padded with zeros
+	Arrays.sort(nam);
+	for (int i = 0; i < nam.length; i++){
+	    final File claTok = new File(claDir, nam[i]);
+	    try{
+		Files.move(new File(queDir, nam[i]).toPath(), claTok.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		return claTok;
+	    }
+	    catch(IOException e){} // another worker claimed the job, or GenOpt removed it
+	}
+	return null;
+    }
+
+    /** Runs a simulation and writes the file that shows its completion.
+     *
+     * @param claTok the file of the claimed job
+     * @exception InterruptedException if the thread is interrupted, in which case the 
+     *            simulation is stopped
+     */
+    private void _runJob(final File claTok)
+	throws InterruptedException{
+	final Properties res = new Properties();
+	final long t0 = System.nanoTime();
+	Process pro = null;
+	try{
+	    final String rel = new String(Files.readAllBytes(claTok.toPath()), StandardCharsets.UTF_8).trim();
+	    final File jobDir = SimulationAgent.resolve(spoDir, rel);
+	    final String jobPat = jobDir.getAbsolutePath();
+	    final Properties man = new Properties();
+	    try(InputStream is = new FileInputStream(new File(jobDir, MANIFEST))){
+		man.load(is);
+	    }
+	    final String[] arg = new String[Integer.parseInt(man.getProperty("command.count"))];
+	    for (int i = 0; i < arg.length; i++)
+		arg[i] = SimulationStarter.replaceString(man.getProperty("command." + i), DIRECTORY, jobPat);
+	    final File proWorDir = new File(SimulationStarter.replaceString(man.getProperty("directory"),
+									    DIRECTORY, jobPat));
+	    final ProcessBuilder pb = new ProcessBuilder(arg);
+	    pb.directory(proWorDir);
+	    for (String key : man.stringPropertyNames()){
+		if ( key.startsWith(ENVIRONMENT) )
+		    pb.environment().put(key.substring(ENVIRONMENT.length()), man.getProperty(key));
+	    }
+	    pb.redirectError(new File(proWorDir, SimulationStarter.ERROR_FILE_NAME));
+	    final String stdOut = man.getProperty("standardOutput", "");
+	    if ( stdOut.length() == 0 )
+		pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+	    else{
+		final File f = new File(SimulationStarter.replaceString(stdOut, DIRECTORY, jobPat));
+		pb.redirectOutput( f.isAbsolute() ? f : new File(proWorDir, f.getPath()) );
+	    }
+	    final double timOut = Double.parseDouble(man.getProperty("timeout", "0"));
+	    pro = pb.start();
+	    String sta = STATUS_EXIT;
+	    // show GenOpt that the worker is alive
+	    claTok.setLastModified(System.currentTimeMillis());
+	    long beat = System.nanoTime();
+	    while ( !pro.waitFor(POLL_INTERVAL, TimeUnit.MILLISECONDS) ){
+		if ( !claTok.exists() ){ // GenOpt stopped the simulation
+		    sta = STATUS_CANCELLED;
+		    break;
+		}
+		if ( (System.nanoTime() - beat) * 1E-9 >= HEARTBEAT_INTERVAL ){
+		    claTok.setLastModified(System.currentTimeMillis());
+		    beat = System.nanoTime();
+		}
+		if ( timOut > 0 && (System.nanoTime() - t0) * 1E-9 > timOut ){
+		    sta = STATUS_TIMEOUT;
+		    break;
+		}
+	    }
+	    if ( !sta.equals(STATUS_EXIT) ){
+		ProcessSlots.destroyTree(pro);
+		pro.waitFor();
+	    }
+	    res.setProperty("status", sta);
+	    res.setProperty("exitValue", String.valueOf(pro.exitValue()));
+	}
+	catch(InterruptedException e){
+	    if ( pro != null )
+		ProcessSlots.destroyTree(pro);
+	    throw e;
+	}
+	catch(Exception e){
+	    res.setProperty("status", STATUS_ERROR);
+	    res.setProperty("message", e.getClass().getName() + ": " + e.getMessage());
+	}
+	res.setProperty("duration", String.valueOf((System.nanoTime() - t0) * 1E-9));
+	try{
+	    writeAtomically(new File(new File(spoDir, DONE), claTok.getName()), res);
+	}
+	catch(IOException e){
+	    System.err.println("GenOpt spool worker: Cannot write the result of '" + claTok.getName() + "': " +
+			       e.getMessage());
+	}
+	claTok.delete();
+    }
+
+    /** Writes properties to a file such that other processes see either no file or the
+     *  complete file.
+     *
+     * @param file the file
+     * @param properties the properties
+     * @exception IOException if an I/O error occurs
+     */
+    static void writeAtomically(final File file, final Properties properties)
+	throws IOException{
+	final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+	properties.store(bos, null);
+	writeAtomically(file, bos.toByteArray());
+    }
+
+    /** Writes a file such that other processes see either no file or the complete file.
+     *
+     * @param file the file
+     * @param contents the contents of the file
+     * @exception IOException if an I/O error occurs
+     */
+    static void writeAtomically(final File file, final byte[] contents)
+	throws IOException{
+	// the temporary file is in the parent of the directory, so that it is not 
+	// listed by processes that read the directory
+	final File tmp = File.createTempFile("genopt-", ".tmp", file.getParentFile().getParentFile());
+	try{
+	    Files.write(tmp.toPath(), contents);
+	    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+	}
+	finally{
+	    tmp.delete();
+	}
+    }
+
+    /** Name of the manifest in the job directory */
+    public final static String MANIFEST = "GenOpt-job.properties";
+    /** Name of the directory with the jobs that have not been claimed */
+    public final static String QUEUE = "queue";
+    /** Name of the directory with the jobs that have been claimed */
+    public final static String CLAIMED = "claimed";
+    /** Name of the directory with the jobs that completed */
+    public final static String DONE = "done";
+    /** Placeholder for the job directory in the manifest */
+    public final static String DIRECTORY = "%GenOpt.Job.Directory%";
+    /** Prefix of the keys of the environment variables in the manifest */
+    final static String ENVIRONMENT = "environment.";
+    /** Status of a simulation program that terminated */
+    final static String STATUS_EXIT = "exit";
+    /** Status of a simulation program that exceeded its time limit */
+    final static String STATUS_TIMEOUT = "timeout";
+    /** Status of a simulation that has been stopped by GenOpt */
+    final static String STATUS_CANCELLED = "cancelled";
+    /** Status of a simulation that could not be run */
+    final static String STATUS_ERROR = "error";
+    /** Number of milliseconds between two checks of the queue and of a running simulation */
+    private final static long POLL_INTERVAL = 1000;
+    /** Number of seconds after which the modification time of the file of a claimed job is updated */
+    final static double HEARTBEAT_INTERVAL = 30;
+    /** Number of seconds after which a claimed job is queued again if the modification time
+	of its file did not change. This is larger than the time for which network file systems 
+	may cache the modification time. */
+    final static double LEASE_TIMEOUT = 300;
+    /** Default number of seconds after which a worker terminates if no job has been queued */
+    private final static double DEFAULT_IDLE_TIME = 60;
+
+    /** The spool directory */
+    protected File spoDir;
+    /** The number of simulations after which the worker terminates, or <CODE>0</CODE> */
+    protected int maxJob;
+    /** The time in seconds after which the worker terminates if no job has been queued */
+    protected double idlTim;
+}
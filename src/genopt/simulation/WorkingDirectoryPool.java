@@ -0,0 +1,266 @@
+package genopt.simulation;
+
+import genopt.db.OptimizationIni;
+import genopt.io.FileHandler;
+import genopt.lang.OptimizerException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/** Object that manages the temporary working directories of the simulations.
+  *
+  * Rather than creating and deleting a directory for each simulation,
+  * the directories are reused. A directory is created, and the static
+  * files are linked into it, when it is used the first time.
+  * Afterwards, the simulation input files are overwritten, and
+  * the simulation output and log files are deleted before each simulation.
+  * The directories are created in the directory of the optimization
+  * initialization file, or in a scratch directory such as <CODE>/dev/shm</CODE>.
+  * A directory that was used by a failed simulation is not reused,
+  * so that it can be inspected.
+  * 
+  * <P><I>This project was carried out at:</I>
+  * <UL><LI><A HREF="http://www.lbl.gov">
+  * Lawrence Berkeley National Laboratory (LBNL)</A>,
+  * <A HREF="http://simulationresearch.lbl.gov">
+  * Simulation Research Group</A>,</LI></UL>
+  * <I>and supported by</I><UL>
+  * <LI>the <A HREF="http://www.energy.gov">
+  * U.S. Department of Energy (DOE)</A>,
+  * <LI>the <A HREF="http://www.satw.ch">
+  * Swiss Academy of Engineering Sciences (SATW)</A>,
+  * <LI>the Swiss National Energy Fund (NEFF), and
+  * <LI>the <A HREF="http://www.snf.ch">
+  * Swiss National Science Foundation (SNSF)</A></LI></UL><P>
+  *
+  * GenOpt Copyright (c) 1998-2016, The Regents of the University of
+  * California, through Lawrence Berkeley National Laboratory (subject 
+  * to receipt of any required approvals from the U.S. Dept. of Energy).  
+  * All rights reserved.
+  *
+  * @author <A HREF="mailto:MWetter@lbl.gov">Michael Wetter</A>
+  *
+  * @version GenOpt(R) 3.1.1 (March 24, 2016)<P>
+  */
+
+/*
+  * Redistribution and use in source and binary forms, with or without 
+  * modification, are permitted provided that the following conditions are met:
+  * 
+  * (1) Redistributions of source code must retain the above copyright notice, 
+  * this list of conditions and the following disclaimer.
+  * 
+  * (2) Redistributions in binary form must reproduce the above copyright 
+  * notice, this list of conditions and the following disclaimer in the 
+  * documentation and/or other materials provided with the distribution.
+  * 
+  * (3) Neither the name of the University of California, Lawrence Berkeley 
+  * National Laboratory, U.S. Dept. of Energy nor the names of its 
+  * contributors may be used to endorse or promote products derived from 
+  * this software without specific prior written permission.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+  * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+  * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR 
+  * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT 
+  * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+  * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED 
+  * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+  * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+  * 
+  * You are under no obligation whatsoever to provide any bug fixes, 
+  * patches, or upgrades to the features, functionality or performance of 
+  * the source code ("Enhancements") to anyone; however, if you choose to 
+  * make your Enhancements available either publicly, or directly to 
+  * Lawrence Berkeley National Laboratory, without imposing a separate 
+  * written license agreement for such Enhancements, then you hereby grant 
+  * the following license: a non-exclusive, royalty-free perpetual license 
+  * to install, use, modify, prepare derivative works, incorporate into 
+  * other computer software, distribute, and sublicense such enhancements 
+  * or derivative works thereof, in binary and source code form. 
+ */
+
+public class WorkingDirectoryPool
+{
+    /** Constructor.
+     *
+     * @param optIni the optimization initialization
+     * @param scratchDirectory the directory in which the temporary directories are 
+     *        created, or <CODE>null</CODE> to use the directory of the optimization
+     *        initialization file
+     * @param staticFiles the canonical path names of the files that are linked into 
+     *        each temporary directory
+     * @exception OptimizerException if the directory in the scratch directory
+     *            cannot be created
+     */
+    public WorkingDirectoryPool(OptimizationIni optIni, String scratchDirectory,
+				String[] staticFiles)
+	throws OptimizerException{
+	OptIni = optIni;
+	staFil = staticFiles.clone();
+	fre = new ArrayDeque<String>();
+	nDir = 0;
+	if ( scratchDirectory == null )
+	    basDir = null;
+	else{
+	    // a directory of its own, as several instances of GenOpt may use the same scratch directory
+	    try{
+		basDir = Files.createTempDirectory(Paths.get(scratchDirectory), "genopt-").toFile();
+	    }
+	    catch(IOException | UnsupportedOperationException | SecurityException e){
+		throw new OptimizerException("Cannot create a temporary directory in '" + scratchDirectory +
+					     "': " + e.getMessage());
+	    }
+	    OptIni.setTemporaryPath(basDir.getAbsolutePath());
+	}
+    }
+
+    /** Acquires a working directory.
+     *
+     * @return the name of the temporary directory, which is used as the
+     *         working directory prefix of the simulation
+     * @exception IOException if the directory cannot be prepared
+     */
+    public String acquire()
+	throws IOException{
+	String dirNam;
+	synchronized(this){
+	    dirNam = fre.pollFirst();
+	    if ( dirNam == null )
+		dirNam = DIRECTORY_PREFIX + (++nDir);
+	}
+	prepare(dirNam);
+	return dirNam;
+    }
+
+    /** Returns a working directory to the pool so that it can be reused.
+     *
+     * @param dirName the name of the temporary directory
+     */
+    public synchronized void release(String dirName){
+	fre.addFirst(dirName);
+    }
+
+    /** Creates a temporary directory, and links the static files into it,
+     *  unless the directory already exists.
+     *
+     * @param dirName the name of the temporary directory
+     * @exception IOException if the static files cannot be linked or copied
+     */
+    public void prepare(String dirName)
+	throws IOException{
+	final File roo = getDirectory(dirName);
+	if ( roo.isDirectory() )
+	    return;
+	roo.mkdirs();
+	for (int i = 0; i < staFil.length; i++){
+	    final File src = new File(staFil[i]);
+	    final File des = new File(OptIni.convertToTemporaryPath(src.getParent(), dirName),
+				      src.getName());
+	    des.getParentFile().mkdirs();
+	    link(src, des);
+	}
+    }
+
+    /** Deletes a temporary directory.
+     *
+     * @param dirName the name of the temporary directory
+     */
+    public void delete(String dirName){
+	FileHandler.deleteDirectory(getDirectory(dirName));
+    }
+
+    /** Gets the root of a temporary directory.
+     *
+     * @param dirName the name of the temporary directory
+     * @return the root of the temporary directory
+     */
+    public File getDirectory(String dirName){
+	return new File(OptIni.convertToTemporaryPath(OptIni.getOptIniPat(), dirName));
+    }
+
+    /** Gets the directory in the scratch directory in which the temporary
+     *  directories are created.
+     *
+     * @return the directory, or <CODE>null</CODE> if no scratch directory is used
+     */
+    public File getScratchDirectory(){
+	return basDir;
+    }
+
+    /** Deletes the temporary directories that are not in use.
+     *
+     *  The directory in the scratch directory is only deleted if it is empty,
+     *  i.e., if no failed simulation left its directory.
+     *  This method must be called at the end of the optimization run.
+     */
+    public synchronized void close(){
+	for (String dirNam : fre)
+	    delete(dirNam);
+	fre.clear();
+	if ( basDir != null )
+	    basDir.delete();
+    }
+
+    /** Links a file to a new name. A hard link is used if possible,
+     *  otherwise a symbolic link, otherwise the file is copied.
+     *
+     * @param src the existing file
+     * @param des the new file
+     * @exception IOException if the file can neither be linked nor copied
+     */
+    public static void link(final File src, final File des)
+	throws IOException{
+	try{
+	    Files.createLink(des.toPath(), src.toPath());
+	    return;
+	}
+	catch(IOException | UnsupportedOperationException e){
+	    // for example if the scratch directory is on a different file system
+	}
+	symbolicLink(src, des);
+    }
+
+    /** Links a file to a new name with a symbolic link if possible,
+     *  otherwise the file is copied.
+     *
+     *  Unlike a hard link, the symbolic link is not changed if the simulation
+     *  replaces the file by a new one.
+     *
+     * @param src the existing file
+     * @param des the new file
+     * @exception IOException if the file can neither be linked nor copied
+     */
+    public static void symbolicLink(final File src, final File des)
+	throws IOException{
+	try{
+	    Files.createSymbolicLink(des.toPath(), src.toPath());
+	    return;
+	}
+	catch(IOException | UnsupportedOperationException e){
+	    // for example on Windows without the privilege to create symbolic links
+	}
+	Files.copy(src.toPath(), des.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Prefix of the names of the temporary directories */
+    public final static String DIRECTORY_PREFIX = "tmp-genopt-slot-";
+
+    /** The optimization initialization */
+    protected OptimizationIni OptIni;
+    /** The canonical path names of the static files */
+    protected String[] staFil;
+    /** The directory in the scratch directory, or <CODE>null</CODE> */
+    protected File basDir;
+    /** The names of the temporary directories that can be reused */
+    private Deque<String> fre;
+    /** The number of temporary directories that have been created */
+    private int nDir;
+}